@@ -2,16 +2,26 @@ package com.robogo.sudokur;
 
 import android.app.Activity;
 import android.content.Intent;
+import android.os.Trace;
+import android.util.Log;
 import android.view.View;
 import android.widget.ImageButton;
+import android.widget.Toast;
 import androidx.appcompat.app.AppCompatActivity;
 import android.os.Bundle;
 
+import java.io.IOException;
+import java.util.concurrent.ExecutionException;
+
 public class MainActivity extends AppCompatActivity {
     private static final int LAUNCH_EDIT_ACTIVITY = 1;
+    private static final long SOLVE_TIMEOUT_MS = 5000;
+    private static Journal journal;
     private SudokuView sudokuView;
     private SudokuBoard sudokuBoard;
+    private PuzzlePool puzzlePool;
     private ImageButton buttonLevel;
+    private SolveTask solving;
     private int level;
 
     @Override
@@ -19,13 +29,91 @@ public class MainActivity extends AppCompatActivity {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_main);
 
+        if (BuildConfig.DEBUG && !Metrics.enabled) {
+            Metrics.setTracer(new Metrics.Tracer() {
+                @Override
+                public void begin(String section) {
+                    Trace.beginSection(section);
+                }
+
+                @Override
+                public void end() {
+                    Trace.endSection();
+                }
+            });
+            Metrics.enabled = true;
+        }
+
         level = 1;
         sudokuBoard = new SudokuBoard();
+        puzzlePool = PuzzlePool.get();
+        if (journal == null)
+            journal = new Journal(getFilesDir());
+        try {
+            journal.restore(sudokuBoard);
+        } catch (IOException e) {
+            Log.w("JOURNAL", "cannot restore game", e);
+        }
+        sudokuBoard.setJournal(journal);
 
         buttonLevel = findViewById(R.id.button_level);
         sudokuView = findViewById(R.id.sudoku_view);
         sudokuView.setSudokuBoard(sudokuBoard);
+        // mistakes can only be marked once the solution is known
+        sudokuBoard.setListener(new SudokuBoard.Listener() {
+            @Override
+            public void onSolutionReady(SudokuBoard board) {
+                sudokuView.postInvalidate();
+            }
+        });
         buttonLevel.setImageResource(getLevelId(level));
+        findViewById(R.id.button_undo).setOnLongClickListener(new View.OnLongClickListener() {
+            @Override
+            public boolean onLongClick(View view) {
+                onRedo(view);
+                return true;
+            }
+        });
+        findViewById(R.id.button_solution).setOnLongClickListener(new View.OnLongClickListener() {
+            @Override
+            public boolean onLongClick(View view) {
+                if (sudokuBoard.initialized()) {
+                    if (sudokuBoard.revealAll())
+                        boardChanged();
+                    else
+                        solveAsync();
+                }
+                return true;
+            }
+        });
+        findViewById(R.id.button_undo_n).setOnLongClickListener(new View.OnLongClickListener() {
+            @Override
+            public boolean onLongClick(View view) {
+                sudokuView.setShowMistakes(!sudokuView.showMistakes());
+                return true;
+            }
+        });
+        findViewById(R.id.button_option).setOnLongClickListener(new View.OnLongClickListener() {
+            @Override
+            public boolean onLongClick(View view) {
+                Log.i("METRICS", Metrics.enabled ? Metrics.snapshot() : "disabled");
+                return true;
+            }
+        });
+    }
+
+    @Override
+    protected void onPause() {
+        super.onPause();
+        journal.flush();
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        sudokuBoard.setListener(null);
+        if (solving != null)
+            solving.cancel(true);
     }
 
     public void onLevel(View view) {
@@ -34,8 +122,10 @@ public class MainActivity extends AppCompatActivity {
     }
 
     public void onNewGame(View view) {
-        sudokuBoard.init(Sudoku.generate(level));
-        sudokuView.invalidate();
+        sudokuBoard.init(puzzlePool.take(level));
+        boardChanged();
+        if (Metrics.enabled)
+            Log.d("POOL", puzzlePool.toString());
     }
 
     public void onManualGame(View view) {
@@ -46,25 +136,94 @@ public class MainActivity extends AppCompatActivity {
     public void onUndo(View view) {
         if (sudokuBoard.initialized()) {
             sudokuBoard.undo();
-            sudokuView.invalidate();
+            boardChanged();
+        }
+    }
+
+    public void onRedo(View view) {
+        if (sudokuBoard.initialized()) {
+            sudokuBoard.redo();
+            boardChanged();
         }
     }
 
     public void onUndoN(View view) {
         if (sudokuBoard.initialized()) {
             sudokuBoard.undoN();
-            sudokuView.invalidate();
+            boardChanged();
         }
     }
 
+    // a hint for the next step, or the focused cell's digit when logic is stuck; a long press fills in
+    // the whole solution
     public void onSolution(View view) {
         if (sudokuBoard.initialized()) {
-            sudokuBoard.solve();
-            sudokuView.invalidate();
+            Hint hint = sudokuBoard.hint();
+            if (Metrics.enabled)
+                Log.d("HINT", String.valueOf(hint));
+            if (hint != null)
+                sudokuView.showHint(hint);
+            else if (sudokuView.revealFocus())
+                boardChanged();
+            else
+                sudokuView.showHint(null);
+        }
+    }
+
+    // a hint still on show may point at a cell that has since changed
+    private void boardChanged() {
+        sudokuView.showHint(null);
+    }
+
+    // entered boards can be nonsense, so the solve runs in the background and gives up after a while
+    private void solveAsync() {
+        if (solving != null)
+            solving.cancel(true);
+        solving = sudokuBoard.solveAsync(SOLVE_TIMEOUT_MS, new SolveTask.Callback() {
+            @Override
+            public void onDone(final SolveTask task) {
+                if (task.isCancelled())
+                    return;
+                sudokuView.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        onSolved(task);
+                    }
+                });
+            }
+        });
+    }
+
+    private void onSolved(SolveTask task) {
+        if (task != solving)
+            return;
+        solving = null;
+        SolveTask.Outcome outcome;
+        try {
+            outcome = task.get();
+        } catch (InterruptedException | ExecutionException e) {
+            Log.w("SOLVE", "solve failed", e);
+            return;
+        }
+        switch (outcome) {
+            case SOLVED:
+                sudokuBoard.apply(task.solution());
+                boardChanged();
+                break;
+            case MULTIPLE:
+                Toast.makeText(this, R.string.solve_multiple, Toast.LENGTH_SHORT).show();
+                break;
+            case UNSOLVABLE:
+                Toast.makeText(this, R.string.solve_unsolvable, Toast.LENGTH_SHORT).show();
+                break;
+            default:
+                Toast.makeText(this, R.string.solve_timeout, Toast.LENGTH_SHORT).show();
+                break;
         }
     }
 
     public void onOption(View view) {
+        sudokuView.setPencilMarks(!sudokuView.pencilMarks());
     }
 
     @Override
@@ -75,6 +234,7 @@ public class MainActivity extends AppCompatActivity {
             if(resultCode == Activity.RESULT_OK){
                 SudokuBoard b = (SudokuBoard)data.getSerializableExtra(SudokuBoard.NAME);
                 sudokuBoard.init(b);
+                boardChanged();
             }
         }
     }
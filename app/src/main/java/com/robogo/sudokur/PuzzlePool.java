@@ -0,0 +1,117 @@
+package com.robogo.sudokur;
+
+import android.os.Process;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// process-wide, so it outlives activity restarts on configuration changes
+class PuzzlePool {
+    static final int LEVELS = Sudoku.LEVELS;
+    private static final int CAPACITY = 3;
+    private static PuzzlePool instance;
+
+    private final List<BlockingQueue<Grid>> pools = new ArrayList<>();
+    private final AtomicInteger[] pending = new AtomicInteger[LEVELS];
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong generated = new AtomicLong();
+    private final AtomicLong generateNanos = new AtomicLong();
+    private final ExecutorService executor;
+    private final Generator instant = Sudoku.newGenerator(Sudoku.Strategy.TRANSFORM);
+    private final Rng rng = Rng.create();   // take() runs on the UI thread only
+
+    private PuzzlePool() {
+        for (int i = 0; i < LEVELS; i++) {
+            pools.add(new ArrayBlockingQueue<Grid>(CAPACITY));
+            pending[i] = new AtomicInteger();
+        }
+        executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(final Runnable r) {
+                Thread t = new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                        r.run();
+                    }
+                }, "PuzzlePool");
+                t.setDaemon(true);
+                return t;
+            }
+        });
+    }
+
+    public static synchronized PuzzlePool get() {
+        if (instance == null) {
+            instance = new PuzzlePool();
+            for (int i = 0; i < LEVELS; i++)
+                instance.topUp(i);
+        }
+        return instance;
+    }
+
+    public Grid take(int level) {
+        Grid board = pools.get(level).poll();
+        if (board != null) {
+            hits.incrementAndGet();
+        } else {
+            misses.incrementAndGet();
+            // nothing ready: reshuffle a seed puzzle rather than make the player wait for a search
+            board = instant.generate(level, rng);
+        }
+        topUp(level);
+        return board;
+    }
+
+    public int size(int level) {
+        return pools.get(level).size();
+    }
+
+    public long hits() {
+        return hits.get();
+    }
+
+    public long misses() {
+        return misses.get();
+    }
+
+    public long generated() {
+        return generated.get();
+    }
+
+    // puzzles per second of background generation time
+    public double fillRate() {
+        long nanos = generateNanos.get();
+        return nanos == 0 ? 0 : generated.get() * 1e9 / nanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("hits:%d misses:%d generated:%d rate:%.1f/s", hits(), misses(), generated(), fillRate());
+    }
+
+    private void topUp(final int level) {
+        while (pools.get(level).size() + pending[level].get() < CAPACITY) {
+            pending[level].incrementAndGet();
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    long start = System.nanoTime();
+                    Grid board = Grid.of(Sudoku.generate(level));
+                    generateNanos.addAndGet(System.nanoTime() - start);
+                    generated.incrementAndGet();
+                    pools.get(level).offer(board);
+                    pending[level].decrementAndGet();
+                }
+            });
+        }
+    }
+}
@@ -3,6 +3,7 @@ package com.robogo.sudokur;
 import android.app.Activity;
 import android.content.Context;
 import android.content.res.Resources;
+import android.graphics.Bitmap;
 import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.Paint;
@@ -15,16 +16,41 @@ import com.plattysoft.leonids.ParticleSystem;
 
 public class SudokuView extends View {
     private static final int REGION_WIDTH = 3;
+    private static final int HINT_SUPPORT = 0x80FFE070;
+    private static final int HINT_TARGET = 0x8080E080;
+    private static final int HINT_TEXT = 0xFF008000;
+    private static final String[] DIGITS = new String[26];
+    private static final long WRONG = 1L << 48;   // cell state bit, above the candidate marks
+    private static final Histogram FRAME = Metrics.histogram("view.frame.ns");
+
+    static {
+        for (int i = 0; i < DIGITS.length; i++)
+            DIGITS[i] = Integer.toString(i);
+    }
+
     private final Paint mLinePaint;
     private final Paint mCellPaint;
     private final Paint mTextPaint;
+    private final Paint mMarkPaint;
     private final Drawable icLock;
     private final Drawable icOpen;
     private final Drawable icFlag;
     private final Drawable icDel;
     private SudokuBoard sudokuBoard;
+    private Hint hint;
+    private boolean pencilMarks;
+    private boolean showMistakes;
     private Cell focus;
     private NumPad numPad;
+    // the board as last drawn: grid lines, givens and player cells; a cell is repainted only when it changes
+    private Bitmap layer;
+    private Canvas layerCanvas;
+    private Grid layerGrid;
+    private int layerSize;
+    private long[] drawn;
+    private float cellSize;
+    private float textOffset;   // baseline below a cell's centre
+    private float markOffset;
 
     public SudokuView(Context context) {
         this(context, null);
@@ -38,11 +64,14 @@ public class SudokuView extends View {
         mLinePaint = new Paint();
         mCellPaint = new Paint();
         mTextPaint = new Paint();
+        mMarkPaint = new Paint();
         mLinePaint.setColor(Color.BLACK);
         mLinePaint.setStyle(Paint.Style.STROKE);
         mCellPaint.setStyle(Paint.Style.FILL);
         mTextPaint.setColor(Color.BLACK);
         mTextPaint.setTextAlign(Paint.Align.CENTER);
+        mMarkPaint.setColor(Color.GRAY);
+        mMarkPaint.setTextAlign(Paint.Align.CENTER);
 
         Resources res = getResources();
         icLock = res.getDrawable(R.drawable.ic_lock, getContext().getTheme());
@@ -59,6 +88,38 @@ public class SudokuView extends View {
         return sudokuBoard;
     }
 
+    public void setPencilMarks(boolean pencilMarks) {
+        this.pencilMarks = pencilMarks;
+        invalidate();
+    }
+
+    public boolean pencilMarks() {
+        return pencilMarks;
+    }
+
+    public void setShowMistakes(boolean showMistakes) {
+        this.showMistakes = showMistakes;
+        invalidate();
+    }
+
+    public boolean showMistakes() {
+        return showMistakes;
+    }
+
+    // fills the focused cell from the solution; false if there is no focus or the solution isn't known
+    public boolean revealFocus() {
+        if (sudokuBoard == null || focus.row < 0 || focus.col < 0 || !sudokuBoard.reveal(focus.row, focus.col))
+            return false;
+        invalidate();
+        return true;
+    }
+
+    // highlighted until the next touch
+    public void showHint(Hint hint) {
+        this.hint = hint;
+        invalidate();
+    }
+
     @Override
     protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
         setMeasuredDimension(widthMeasureSpec, widthMeasureSpec);
@@ -76,6 +137,7 @@ public class SudokuView extends View {
                 case MotionEvent.ACTION_DOWN:
                     break;
                 case MotionEvent.ACTION_UP:
+                    hint = null;
                     onMotionUp(event);
                     break;
                 default:
@@ -91,30 +153,40 @@ public class SudokuView extends View {
     protected void onDraw(Canvas canvas) {
         super.onDraw(canvas);
 
-        int width = getWidth();
-        int height = getHeight();
-        int size = Math.min(getWidth(), getHeight());
-        float cellSize = size / Sudoku.Size;
-        mTextPaint.setTextSize(cellSize * 0.75f);
+        long start = Metrics.enabled ? System.nanoTime() : 0;
+        Metrics.begin("SudokuView.draw");
+        try {
+            drawBoard(canvas);
+        } finally {
+            Metrics.end();
+        }
+        if (start != 0)
+            FRAME.record(System.nanoTime() - start);
+    }
 
-        fillRect(canvas, 0, 0, width, height, Color.DKGRAY);
-        fillRect(canvas, 0, 0, size, size, Color.WHITE);
+    private void drawBoard(Canvas canvas) {
+        int size = Math.min(getWidth(), getHeight());
+        if (size <= 0)
+            return;
+        boolean ready = sudokuBoard != null && sudokuBoard.initialized();
+        if (layer == null || layer.getWidth() != size || layerSize != boardSize() || (ready ? sudokuBoard.grid() : null) != layerGrid)
+            buildLayer(size);
+        else if (ready)
+            updateLayer();
 
-        if (sudokuBoard != null && sudokuBoard.initialized()) {
-            drawBoard(canvas, 0, 0, cellSize);
-        }
+        canvas.drawColor(Color.DKGRAY);
+        canvas.drawBitmap(layer, 0, 0, null);
 
-        drawGrid(canvas, 0, 0, cellSize, Sudoku.Size, Sudoku.Size, Sudoku.Size / 3);
+        if (ready && hint != null)
+            drawHint(canvas);
 
         // focused
-        if (sudokuBoard != null && sudokuBoard.initialized()) {
-            if (focus.row >= 0 && focus.col >= 0) {
-                float x = focus.col * cellSize;
-                float y = focus.row * cellSize;
-                mLinePaint.setColor(Color.RED);
-                mLinePaint.setStrokeWidth(3);
-                canvas.drawRect(x, y, x + cellSize, y + cellSize, mLinePaint);
-            }
+        if (ready && focus.row >= 0 && focus.col >= 0) {
+            float x = focus.col * cellSize;
+            float y = focus.row * cellSize;
+            mLinePaint.setColor(Color.RED);
+            mLinePaint.setStrokeWidth(3);
+            canvas.drawRect(x, y, x + cellSize, y + cellSize, mLinePaint);
         }
 
         // num pad
@@ -167,7 +239,7 @@ public class SudokuView extends View {
                         } else {
                             int rr = getNumPadIndex(cell.row, numPad.row());
                             int cc = getNumPadIndex(cell.col, numPad.col());
-                            numPad.show(rr, cc, !sudokuBoard.locked(rr, cc));
+                            numPad.show(rr, cc, !sudokuBoard.locked(cell.row, cell.col));
                             Log.i("VIEW", String.format("cell:%d,%d pad:%d,%d", cell.row, cell.col, rr, cc));
                         }
                     }
@@ -199,38 +271,127 @@ public class SudokuView extends View {
         }
     }
 
-    private void drawBoard(Canvas canvas, float x, float y, float cell) {
-        for (int i = 0; i < sudokuBoard.row(); i++) {
-            for (int j = 0; j < sudokuBoard.col(); j++) {
-                float xx = x + j * cell;
-                float yy = y + i * cell;
-                if (sudokuBoard.readonly(i, j)) {
-                    mCellPaint.setColor(Color.LTGRAY);
-                    canvas.drawRect(xx, yy, xx + cell, yy + cell, mCellPaint);
-                }
-                int icx = (int)xx;
-                int icy = (int)yy;
-                int ics = (int)(cell / 2);
-                if (sudokuBoard.locked(i, j)) {
-                    icLock.setBounds(icx, icy, icx + ics, icy + ics);
-                    icLock.draw(canvas);
-                    icy += ics;
-                }
-                if (sudokuBoard.flagged(i, j)) {
-                    icFlag.setBounds(icx, icy, icx + ics, icy + ics);
-                    icFlag.draw(canvas);
+    // on size change or a new puzzle: metrics, then every cell and the grid
+    private void buildLayer(int size) {
+        if (layer == null || layer.getWidth() != size) {
+            if (layer != null)
+                layer.recycle();
+            layer = Bitmap.createBitmap(size, size, Bitmap.Config.ARGB_8888);
+            layerCanvas = new Canvas(layer);
+        }
+        int n = boardSize();
+        layerSize = n;
+        cellSize = size / n;
+        mTextPaint.setTextSize(cellSize * 0.75f);
+        textOffset = -(mTextPaint.ascent() + mTextPaint.descent()) / 2;
+        float sub = cellSize / boardBox();
+        mMarkPaint.setTextSize(sub * 0.8f);
+        markOffset = sub / 2 - (mMarkPaint.ascent() + mMarkPaint.descent()) / 2;
+
+        layerCanvas.drawColor(Color.WHITE);
+        drawn = new long[n * n];
+        layerGrid = null;
+        if (sudokuBoard != null && sudokuBoard.initialized()) {
+            layerGrid = sudokuBoard.grid();
+            for (int i = 0; i < n; i++) {
+                for (int j = 0; j < n; j++) {
+                    drawn[i * n + j] = cellState(i, j);
+                    drawCell(i, j, drawn[i * n + j]);
                 }
-                int value = sudokuBoard.value(i, j);
-                if (value > 0) {
-                    xx += cell / 2;
-                    yy += cell / 2 - (mTextPaint.ascent() + mTextPaint.descent()) / 2;
-                    mTextPaint.setColor(sudokuBoard.conflicting(i, j) ? Color.RED : Color.BLACK);
-                    canvas.drawText(Integer.toString(value), xx, yy, mTextPaint);
+            }
+        }
+        drawGrid(layerCanvas, 0, 0, cellSize, n, n, boardBox());
+    }
+
+    private void updateLayer() {
+        int n = layerSize;
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                long state = cellState(i, j);
+                if (state != drawn[i * n + j]) {
+                    drawn[i * n + j] = state;
+                    drawCell(i, j, state);
                 }
             }
         }
     }
 
+    // everything a cell shows: value and flags, plus its candidates when pencil marks are on
+    private long cellState(int i, int j) {
+        int value = sudokuBoard.value(i, j);
+        long state = value | sudokuBoard.flags(i, j);
+        if (value == 0 && pencilMarks)
+            state |= (long) sudokuBoard.candidates(i, j) << 16;
+        if (showMistakes && sudokuBoard.wrong(i, j))
+            state |= WRONG;
+        return state;
+    }
+
+    private void drawCell(int i, int j, long state) {
+        Canvas canvas = layerCanvas;
+        float x = j * cellSize;
+        float y = i * cellSize;
+        int flags = (int) state & Board.FLAGS_MASK;
+        fillRect(canvas, x, y, cellSize, cellSize, (flags & Board.READONLY_MASK) != 0 ? Color.LTGRAY : Color.WHITE);
+        int icx = (int) x;
+        int icy = (int) y;
+        int ics = (int) (cellSize / 2);
+        if ((flags & Board.LOCK_MASK) != 0) {
+            icLock.setBounds(icx, icy, icx + ics, icy + ics);
+            icLock.draw(canvas);
+            icy += ics;
+        }
+        if ((flags & Board.FLAG_MASK) != 0) {
+            icFlag.setBounds(icx, icy, icx + ics, icy + ics);
+            icFlag.draw(canvas);
+        }
+        int value = (int) state & Board.VALUE_MASK;
+        if (value > 0) {
+            mTextPaint.setColor((flags & Board.CONFLICT_MASK) != 0 || (state & WRONG) != 0 ? Color.RED : Color.BLACK);
+            canvas.drawText(DIGITS[value], x + cellSize / 2, y + cellSize / 2 + textOffset, mTextPaint);
+        } else {
+            drawMarks(canvas, x, y, (int) (state >>> 16));
+        }
+        drawBorders(canvas, i, j);
+    }
+
+    // the fill covers half of each surrounding line, so put them back
+    private void drawBorders(Canvas canvas, int i, int j) {
+        int box = boardBox();
+        float x = j * cellSize;
+        float y = i * cellSize;
+        mLinePaint.setColor(Color.BLACK);
+        mLinePaint.setStrokeWidth(i % box == 0 ? REGION_WIDTH : 1);
+        canvas.drawLine(x, y, x + cellSize, y, mLinePaint);
+        mLinePaint.setStrokeWidth((i + 1) % box == 0 ? REGION_WIDTH : 1);
+        canvas.drawLine(x, y + cellSize, x + cellSize, y + cellSize, mLinePaint);
+        mLinePaint.setStrokeWidth(j % box == 0 ? REGION_WIDTH : 1);
+        canvas.drawLine(x, y, x, y + cellSize, mLinePaint);
+        mLinePaint.setStrokeWidth((j + 1) % box == 0 ? REGION_WIDTH : 1);
+        canvas.drawLine(x + cellSize, y, x + cellSize, y + cellSize, mLinePaint);
+    }
+
+    // candidates laid out like the digits of a box, 1 top left
+    private void drawMarks(Canvas canvas, float x, float y, int marks) {
+        int box = boardBox();
+        float sub = cellSize / box;
+        for (; marks != 0; marks &= marks - 1) {
+            int v = Integer.numberOfTrailingZeros(marks) - 1;
+            canvas.drawText(DIGITS[v + 1], x + (v % box) * sub + sub / 2, y + (v / box) * sub + markOffset, mMarkPaint);
+        }
+    }
+
+    private void drawHint(Canvas canvas) {
+        int n = layerSize;
+        for (int idx : hint.support)
+            fillRect(canvas, idx % n * cellSize, idx / n * cellSize, cellSize, cellSize, HINT_SUPPORT);
+        float x = hint.col * cellSize;
+        float y = hint.row * cellSize;
+        fillRect(canvas, x, y, cellSize, cellSize, HINT_TARGET);
+        mTextPaint.setColor(HINT_TEXT);
+        canvas.drawText(DIGITS[hint.value], x + cellSize / 2, y + cellSize / 2 + textOffset, mTextPaint);
+    }
+
     private void drawNumPad(Canvas canvas, float x, float y, float cell) {
         mTextPaint.setColor(Color.BLACK);
         for (int i = 0; i < numPad.row(); i++) {
@@ -238,10 +399,10 @@ public class SudokuView extends View {
                 float xx = x + j * cell;
                 float yy = y + i * cell;
                 int value = numPad.value(i, j);
+                if (value == 0)
+                    continue;
                 if (value < NumPad.LOCK) {
-                    xx += cell / 2;
-                    yy += cell / 2 - (mTextPaint.ascent() + mTextPaint.descent()) / 2;
-                    canvas.drawText(Integer.toString(value), xx, yy, mTextPaint);
+                    canvas.drawText(DIGITS[value], xx + cell / 2, yy + cell / 2 + textOffset, mTextPaint);
                 } else {
                     Drawable d;
                     if (value == NumPad.LOCK)
@@ -271,10 +432,18 @@ public class SudokuView extends View {
             return null;
         if (y < 0 || y > size)
             return null;
-        float cellSize = size / Sudoku.Size;
+        float cellSize = size / boardSize();
         return new Cell((int)(y / cellSize), (int)(x / cellSize));
     }
 
+    private int boardSize() {
+        return sudokuBoard != null && sudokuBoard.initialized() ? sudokuBoard.row() : Sudoku.Size;
+    }
+
+    private int boardBox() {
+        return sudokuBoard != null && sudokuBoard.initialized() ? sudokuBoard.box() : 3;
+    }
+
     private void congrad() {
         new ParticleSystem((Activity) getContext(), 100, R.drawable.ic_flower, 4000)
                 .setSpeedRange(0.2f, 0.5f)
@@ -294,9 +463,9 @@ public class SudokuView extends View {
     }
 
     static class NumPad extends Board {
-        static final int LOCK = 10;
-        static final int FLAG = 11;
-        static final int CLEAR = 12;
+        static final int LOCK = 100;
+        static final int FLAG = 101;
+        static final int CLEAR = 102;
         private final SudokuView parent;
         int left;
         int top;
@@ -324,36 +493,39 @@ public class SudokuView extends View {
             if (visible &&
                 col >= left && col < left + col() &&
                 row >= top && row < top + row()) {
-                int index = 1 + (row - top) * col() + (col - left);
-                if (!showNumbers)
-                    index += LOCK;
-                return index;
+                return value(row - top, col - left);
             }
             return 0;
         }
 
         @Override
         public int row() {
-            return showNumbers ? 4 : 1;
+            return showNumbers ? numRows() + 1 : 1;
         }
 
+        // digits are laid out box wide, with room for the three commands below them
         @Override
-        public int col() { return 3; }
+        public int col() { return Math.max(3, parent.boardBox()); }
 
         @Override
         public int value(int i, int j) {
-            int numRows = showNumbers ? 3 : 0;
+            int numRows = showNumbers ? numRows() : 0;
             if (i == numRows) {
                 if (j == 0) return LOCK;
                 if (j == 1) return FLAG;
                 if (j == 2) return CLEAR;
                 return 0;
             } else if (i < numRows) {
-                return 1 + i * 3 + j;
+                int value = 1 + i * col() + j;
+                return value <= parent.boardSize() ? value : 0;
             }
             return 0;
         }
 
+        private int numRows() {
+            return (parent.boardSize() + col() - 1) / col();
+        }
+
         @Override
         public int flags(int i, int j) {
             return 0;
@@ -0,0 +1,58 @@
+package com.robogo.sudokur;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+// per-cell queries over every cell of the first "hardest" puzzle
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class BoardBenchmark {
+    private int[][] board;
+    private SudokuBoard sudokuBoard;
+
+    @Setup
+    public void setup() throws IOException {
+        board = Corpus.load("hardest")[0];
+        sudokuBoard = new SudokuBoard();
+        sudokuBoard.init(Corpus.load("hardest")[0]);
+    }
+
+    @Benchmark
+    public long check() {
+        long sum = 0;
+        for (int i = 0; i < Sudoku.Size; i++) {
+            for (int j = 0; j < Sudoku.Size; j++)
+                sum += Sudoku.check(board, i, j, (i + j) % Sudoku.Size + 1);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public int findPossible() {
+        int sum = 0;
+        for (int i = 0; i < Sudoku.Size; i++) {
+            for (int j = 0; j < Sudoku.Size; j++)
+                sum += Sudoku.findPossible(board, i, j, null);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public int candidates() {
+        int sum = 0;
+        for (int i = 0; i < Sudoku.Size; i++) {
+            for (int j = 0; j < Sudoku.Size; j++)
+                sum += Integer.bitCount(sudokuBoard.candidates(i, j));
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,41 @@
+package com.robogo.sudokur;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CanonicalBenchmark {
+    @Param({"17clue", "hardest"})
+    String corpus;
+
+    private Grid[] puzzles;
+    private Canonical canonical;
+    private int next;
+
+    @Setup
+    public void setup() throws IOException {
+        int[][][] boards = Corpus.load(corpus);
+        puzzles = new Grid[boards.length];
+        for (int i = 0; i < boards.length; i++)
+            puzzles[i] = Grid.of(boards[i]);
+        canonical = new Canonical();
+    }
+
+    @Benchmark
+    public long hash() {
+        Grid puzzle = puzzles[next];
+        next = (next + 1) % puzzles.length;
+        return canonical.hash(puzzle);
+    }
+}
@@ -0,0 +1,43 @@
+package com.robogo.sudokur;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
+
+// puzzle lists bundled under src/jmh/resources/corpus, one 81-char puzzle per line
+final class Corpus {
+    private Corpus() {
+    }
+
+    static int[][][] load(String name) throws IOException {
+        InputStream in = Corpus.class.getResourceAsStream("/corpus/" + name + ".txt");
+        if (in == null)
+            throw new IOException("No corpus named " + name);
+        List<int[][]> boards = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, "US-ASCII"))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.length() >= Sudoku.Size * Sudoku.Size)
+                    boards.add(parse(line));
+            }
+        }
+        return boards.toArray(new int[0][][]);
+    }
+
+    static int[][] parse(String line) {
+        int[][] board = new int[Sudoku.Size][Sudoku.Size];
+        for (int i = 0; i < Sudoku.Size * Sudoku.Size; i++) {
+            char c = line.charAt(i);
+            board[i / Sudoku.Size][i % Sudoku.Size] = c >= '1' && c <= '9' ? c - '0' : 0;
+        }
+        return board;
+    }
+
+    static void copy(int[][] from, int[][] to) {
+        for (int i = 0; i < from.length; i++)
+            System.arraycopy(from[i], 0, to[i], 0, from[i].length);
+    }
+}
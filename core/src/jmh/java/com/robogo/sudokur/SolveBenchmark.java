@@ -0,0 +1,51 @@
+package com.robogo.sudokur;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SolveBenchmark {
+    @Param({"17clue", "hardest"})
+    String corpus;
+
+    @Param({"BITMASK", "DLX"})
+    Sudoku.Engine engine;
+
+    private int[][][] puzzles;
+    private int[][] board;
+    private Solver solver;
+    private int next;
+
+    @Setup
+    public void setup() throws IOException {
+        puzzles = Corpus.load(corpus);
+        board = new int[Sudoku.Size][Sudoku.Size];
+        solver = Sudoku.newSolver(engine);
+    }
+
+    // one puzzle per invocation, cycling through the corpus
+    @Benchmark
+    public boolean solve() {
+        Corpus.copy(puzzles[next], board);
+        next = (next + 1) % puzzles.length;
+        return solver.solve(board);
+    }
+
+    @Benchmark
+    public int countSolutions() {
+        int[][] puzzle = puzzles[next];
+        next = (next + 1) % puzzles.length;
+        return solver.countSolutions(puzzle, 2);
+    }
+}
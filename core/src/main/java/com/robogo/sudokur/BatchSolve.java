@@ -0,0 +1,253 @@
+package com.robogo.sudokur;
+
+import java.io.BufferedOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+// BatchSolve [-t threads] [-e BITMASK|DLX] [input|-] [output|-]
+//
+// streams 81-character puzzles (digits, '0' or '.' for blanks) and writes the solutions in input order, one
+// output line per input line: unsolvable puzzles are echoed unchanged, '#' comments and blank lines are copied
+// through, and any other line comes out as "# malformed"
+public final class BatchSolve {
+    private static final int CELLS = 81;
+    private static final int IN_FLIGHT_PER_THREAD = 4;
+    private static final byte[] BLANK = new byte[0];
+    private static final byte[] MALFORMED = "# malformed".getBytes();
+
+    private final InputStream in;
+    private final OutputStream out;
+    private final int threads;
+    private final Sudoku.Engine engine;
+    private final byte[] buffer = new byte[1 << 16];
+    private final byte[] line = new byte[CELLS + 1];
+    private byte[] text = new byte[128];
+    private final Histogram latency = new Histogram();
+    private int pos;
+    private int limit;
+    private long solved;
+    private long unsolvable;
+    private long malformed;
+
+    public BatchSolve(InputStream in, OutputStream out, int threads, Sudoku.Engine engine) {
+        this.in = in;
+        this.out = out;
+        this.threads = threads;
+        this.engine = engine;
+    }
+
+    public void run() throws IOException, InterruptedException {
+        final ThreadLocal<Solver> solvers = new ThreadLocal<Solver>() {
+            @Override
+            protected Solver initialValue() {
+                return Sudoku.newSolver(engine);
+            }
+        };
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        // the reader blocks on the oldest job once this many are queued, which bounds memory and keeps order
+        ArrayDeque<Future<Job>> pending = new ArrayDeque<>();
+        int maxPending = threads * IN_FLIGHT_PER_THREAD;
+        try {
+            Job next;
+            while ((next = next()) != null) {
+                if (pending.size() >= maxPending)
+                    write(pending.poll());
+                final Job job = next;
+                if (job.grid == null) {
+                    // nothing to solve, but it still has to come out in its place
+                    FutureTask<Job> done = new FutureTask<>(new Callable<Job>() {
+                        @Override
+                        public Job call() {
+                            return job;
+                        }
+                    });
+                    done.run();
+                    pending.add(done);
+                    continue;
+                }
+                pending.add(executor.submit(new Callable<Job>() {
+                    @Override
+                    public Job call() {
+                        long start = System.nanoTime();
+                        job.solved = solvers.get().solve(job.grid);
+                        job.nanos = System.nanoTime() - start;
+                        return job;
+                    }
+                }));
+            }
+            while (!pending.isEmpty())
+                write(pending.poll());
+            out.flush();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    public long solved() {
+        return solved;
+    }
+
+    public long unsolvable() {
+        return unsolvable;
+    }
+
+    public long malformed() {
+        return malformed;
+    }
+
+    public Histogram latency() {
+        return latency;
+    }
+
+    private void write(Future<Job> future) throws IOException, InterruptedException {
+        Job job;
+        try {
+            job = future.get();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+        if (job.grid == null) {
+            out.write(job.text);
+            out.write('\n');
+            return;
+        }
+        latency.record(job.nanos);
+        if (job.solved)
+            solved++;
+        else
+            unsolvable++;
+        for (int idx = 0; idx < CELLS; idx++) {
+            int value = job.grid.value(idx);
+            line[idx] = (byte) (value == 0 ? '.' : '0' + value);
+        }
+        line[CELLS] = '\n';
+        out.write(line);
+    }
+
+    // parses the next line straight from the byte buffer: a puzzle, with anything after the 81st cell ignored,
+    // or a line that is written through as it is; null at the end of the input
+    private Job next() throws IOException {
+        Grid grid = new Grid(9);
+        int cells = 0;
+        int length = 0;
+        boolean bad = false;
+        boolean comment = false;
+        boolean any = false;
+        int b;
+        while ((b = read()) >= 0) {
+            any = true;
+            if (b == '\n') {
+                break;
+            } else if (b == '\r') {
+                continue;
+            } else if (comment) {
+                if (length == text.length)
+                    text = Arrays.copyOf(text, 2 * length);
+                text[length++] = (byte) b;
+            } else if (cells == CELLS || bad) {
+                continue;
+            } else if (b >= '1' && b <= '9') {
+                grid.set(cells++, b - '0');
+            } else if (b == '0' || b == '.') {
+                grid.set(cells++, 0);
+            } else if (b == '#' && cells == 0) {
+                comment = true;
+                text[length++] = (byte) b;
+            } else {
+                bad = true;
+            }
+        }
+        if (!any)
+            return null;
+        if (cells == CELLS)
+            return new Job(grid, null);
+        if (comment)
+            return new Job(null, Arrays.copyOf(text, length));
+        if (cells == 0 && !bad)
+            return new Job(null, BLANK);
+        malformed++;
+        return new Job(null, MALFORMED);
+    }
+
+    private int read() throws IOException {
+        if (pos == limit) {
+            limit = in.read(buffer, 0, buffer.length);
+            pos = 0;
+            if (limit <= 0) {
+                limit = 0;
+                return -1;
+            }
+        }
+        return buffer[pos++];
+    }
+
+    private static final class Job {
+        final Grid grid;    // null for a line that is written through
+        final byte[] text;
+        boolean solved;
+        long nanos;
+
+        Job(Grid grid, byte[] text) {
+            this.grid = grid;
+            this.text = text;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        int threads = Runtime.getRuntime().availableProcessors();
+        Sudoku.Engine engine = Sudoku.Engine.BITMASK;
+        String input = "-";
+        String output = "-";
+        int files = 0;
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("-t") && i + 1 < args.length) {
+                threads = Math.max(1, Integer.parseInt(args[++i]));
+            } else if (args[i].equals("-e") && i + 1 < args.length) {
+                engine = Sudoku.Engine.valueOf(args[++i].toUpperCase());
+            } else if (args[i].equals("-m")) {
+                Metrics.enabled = true;
+            } else if (files == 0) {
+                input = args[i];
+                files++;
+            } else {
+                output = args[i];
+                files++;
+            }
+        }
+
+        InputStream in = input.equals("-") ? System.in : new FileInputStream(input);
+        OutputStream out = new BufferedOutputStream(output.equals("-") ? System.out : new FileOutputStream(output), 1 << 16);
+        BatchSolve batch = new BatchSolve(in, out, threads, engine);
+        long start = System.nanoTime();
+        try {
+            batch.run();
+        } finally {
+            out.flush();
+            if (in != System.in)
+                in.close();
+            if (!output.equals("-"))
+                out.close();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        Histogram latency = batch.latency();
+        System.err.printf("%d puzzles in %.2f s (%.0f/s) on %d threads, %s%n",
+                latency.count(), seconds, latency.count() / seconds, threads, engine);
+        System.err.printf("latency p50 %.1f us, p99 %.1f us, max %.1f us%n",
+                latency.percentile(0.5) / 1e3, latency.percentile(0.99) / 1e3, latency.max() / 1e3);
+        System.err.printf("solved %d, unsolvable %d, malformed %d%n",
+                batch.solved(), batch.unsolvable(), batch.malformed());
+        if (Metrics.enabled)
+            System.err.print(Metrics.snapshot());
+    }
+}
@@ -0,0 +1,404 @@
+package com.robogo.sudokur;
+
+import java.util.Arrays;
+
+class BitSolver implements Solver {
+    private static final int CHECK_EVERY = 0x3FF;  // nodes between cancel/deadline checks, minus one
+    private final int n;
+    private final int all;
+    private final int[] rowOf;
+    private final int[] colOf;
+    private final int[] boxOf;
+    private final int[][] units;
+    private final Geometry geometry;
+    private final boolean variant;
+    private final int[] cells;
+    private final int[] rows;
+    private final int[] cols;
+    private final int[] boxes;
+    private final int[] extras;     // digits used per unit past the boxes
+    private final int[] cageUsed;
+    private final int[] cageLeft;   // sum still to be made up by the open cells of each cage
+    private final int[] cageOpen;
+    private final int[] empty;
+    private final int[] slot;       // position of each empty cell in empty[]
+    private int emptyCount;
+    private int limit;
+    private int found;
+    private long nodes;
+    private long backtracks;
+    private volatile boolean cancelled;
+    private boolean timed;
+    private long deadline;
+    private boolean aborted;
+
+    public BitSolver() {
+        this(Geometry.of(3));
+    }
+
+    public BitSolver(Geometry geometry) {
+        n = geometry.size;
+        all = geometry.all;
+        rowOf = geometry.rowOf;
+        colOf = geometry.colOf;
+        boxOf = geometry.boxOf;
+        units = geometry.units;
+        this.geometry = geometry;
+        variant = geometry.variant;
+        cells = new int[geometry.cells];
+        rows = new int[n];
+        cols = new int[n];
+        boxes = new int[n];
+        extras = new int[units.length - 3 * n];
+        cageUsed = new int[geometry.cages.length];
+        cageLeft = new int[geometry.cages.length];
+        cageOpen = new int[geometry.cages.length];
+        empty = new int[geometry.cells];
+        slot = new int[geometry.cells];
+    }
+
+    @Override
+    public boolean solve(int[][] board) {
+        limit = 1;
+        found = 0;
+        if (board.length != n || !load(board) || !run())
+            return false;
+        for (int idx = 0; idx < cells.length; idx++) {
+            int[] row = board[rowOf[idx]];
+            row[colOf[idx]] = (row[colOf[idx]] & ~Board.VALUE_MASK) | cells[idx];
+        }
+        return true;
+    }
+
+    @Override
+    public boolean solve(Grid grid) {
+        limit = 1;
+        found = 0;
+        if (grid.size() != n || !load(grid) || !run())
+            return false;
+        for (int idx = 0; idx < cells.length; idx++)
+            grid.setValue(idx, cells[idx]);
+        return true;
+    }
+
+    @Override
+    public int countSolutions(int[][] board, int limit) {
+        this.limit = limit;
+        found = 0;
+        if (board.length == n && load(board))
+            run();
+        return found;
+    }
+
+    @Override
+    public int countSolutions(Grid grid, int limit) {
+        this.limit = limit;
+        found = 0;
+        if (grid.size() == n && load(grid))
+            run();
+        return found;
+    }
+
+    @Override
+    public void setDeadline(long deadline) {
+        this.deadline = deadline;
+        timed = true;
+    }
+
+    @Override
+    public void cancel() {
+        cancelled = true;
+    }
+
+    @Override
+    public boolean aborted() {
+        return aborted;
+    }
+
+    // loads a grid for a series of alternative() and clear() calls, which then change just the cell they are
+    // given rather than load the grid again; false if the givens already clash
+    boolean track(Grid grid) {
+        return grid.size() == n && load(grid);
+    }
+
+    // whether the tracked grid with its clue at idx taken out has a solution with some other digit there, i.e.
+    // whether that clue is needed for the solution to be unique: a search for one solution rather than a count
+    // to two. The clue is back in place afterwards
+    boolean alternative(int idx) {
+        limit = 1;
+        found = 0;
+        int value = cells[idx];
+        if (value == 0)
+            return false;
+        int r = rowOf[idx];
+        int c = colOf[idx];
+        int b = boxOf[idx];
+        int bit = 1 << value;
+        rows[r] ^= bit;
+        cols[c] ^= bit;
+        boxes[b] ^= bit;
+        if (variant)
+            leave(idx, value);
+        int free = free(idx) & ~bit;
+        // the cell is decided here, at depth 0, and search() carries on from depth 1
+        if (emptyCount > 0) {
+            empty[emptyCount] = empty[0];
+            slot[empty[0]] = emptyCount;
+        }
+        empty[0] = idx;
+        slot[idx] = 0;
+        emptyCount++;
+
+        begin();
+        boolean result = false;
+        while (free != 0 && !result && !aborted) {
+            int pick = free & -free;
+            free ^= pick;
+            rows[r] |= pick;
+            cols[c] |= pick;
+            boxes[b] |= pick;
+            cells[idx] = Integer.numberOfTrailingZeros(pick);
+            if (variant)
+                enter(idx, cells[idx]);
+            result = search(1) && !aborted;
+            if (variant)
+                leave(idx, cells[idx]);
+            rows[r] ^= pick;
+            cols[c] ^= pick;
+            boxes[b] ^= pick;
+        }
+        publish();
+
+        // a search that succeeds or gives up returns without undoing its moves: take them back one by one
+        for (int k = 1; k < emptyCount; k++) {
+            int cell = empty[k];
+            if (cells[cell] != 0) {
+                unset(cell);
+                cells[cell] = 0;
+            }
+        }
+        cells[idx] = value;
+        rows[r] |= bit;
+        cols[c] |= bit;
+        boxes[b] |= bit;
+        if (variant)
+            enter(idx, value);
+        emptyCount--;
+        if (emptyCount > 0) {
+            empty[0] = empty[emptyCount];
+            slot[empty[0]] = 0;
+        }
+        return result;
+    }
+
+    // takes the clue at idx out of the tracked grid
+    void clear(int idx) {
+        if (cells[idx] == 0)
+            return;
+        unset(idx);
+        cells[idx] = 0;
+        slot[idx] = emptyCount;
+        empty[emptyCount++] = idx;
+    }
+
+    private boolean load(int[][] board) {
+        for (int idx = 0; idx < cells.length; idx++)
+            cells[idx] = board[rowOf[idx]][colOf[idx]] & Board.VALUE_MASK;
+        return prepare();
+    }
+
+    private boolean load(Grid grid) {
+        for (int idx = 0; idx < cells.length; idx++)
+            cells[idx] = grid.value(idx);
+        return prepare();
+    }
+
+    private boolean prepare() {
+        Arrays.fill(rows, 0);
+        Arrays.fill(cols, 0);
+        Arrays.fill(boxes, 0);
+        if (variant) {
+            Arrays.fill(extras, 0);
+            Arrays.fill(cageUsed, 0);
+            System.arraycopy(geometry.cageSum, 0, cageLeft, 0, cageLeft.length);
+            for (int c = 0; c < cageOpen.length; c++)
+                cageOpen[c] = geometry.cages[c].length;
+        }
+        emptyCount = 0;
+        for (int idx = 0; idx < cells.length; idx++) {
+            int value = cells[idx];
+            if (value == 0) {
+                slot[idx] = emptyCount;
+                empty[emptyCount++] = idx;
+                continue;
+            }
+            int bit = 1 << value;
+            if (((rows[rowOf[idx]] | cols[colOf[idx]] | boxes[boxOf[idx]]) & bit) != 0)
+                return false;
+            if (variant && (~allowed(idx) & bit) != 0)
+                return false;
+            rows[rowOf[idx]] |= bit;
+            cols[colOf[idx]] |= bit;
+            boxes[boxOf[idx]] |= bit;
+            if (variant)
+                enter(idx, value);
+        }
+        return true;
+    }
+
+    private boolean run() {
+        begin();
+        boolean result = !aborted && search(0) && !aborted;
+        publish();
+        return result;
+    }
+
+    // counts are kept in plain fields during the search and published once per call
+    private void begin() {
+        nodes = 0;
+        backtracks = 0;
+        aborted = cancelled;
+    }
+
+    private void publish() {
+        if (Metrics.enabled) {
+            Metrics.SOLVER_NODES.add(nodes);
+            Metrics.SOLVER_BACKTRACKS.add(backtracks);
+        }
+    }
+
+    private boolean expired() {
+        if (cancelled || (timed && System.nanoTime() - deadline >= 0))
+            aborted = true;
+        return aborted;
+    }
+
+    private void unset(int idx) {
+        int bit = 1 << cells[idx];
+        rows[rowOf[idx]] ^= bit;
+        cols[colOf[idx]] ^= bit;
+        boxes[boxOf[idx]] ^= bit;
+        if (variant)
+            leave(idx, cells[idx]);
+    }
+
+    private int free(int idx) {
+        int free = ~(rows[rowOf[idx]] | cols[colOf[idx]] | boxes[boxOf[idx]]) & all;
+        return variant ? free & allowed(idx) : free;
+    }
+
+    // what the diagonals and the cage, sum included, leave open for a cell
+    private int allowed(int idx) {
+        int free = all;
+        for (int u : geometry.extraOf[idx])
+            free &= ~extras[u - 3 * n];
+        int c = geometry.cageOf[idx];
+        if (c >= 0)
+            free &= ~cageUsed[c] & geometry.sumMask(cageLeft[c], cageOpen[c]);
+        return free;
+    }
+
+    private void enter(int idx, int value) {
+        for (int u : geometry.extraOf[idx])
+            extras[u - 3 * n] |= 1 << value;
+        int c = geometry.cageOf[idx];
+        if (c >= 0) {
+            cageUsed[c] |= 1 << value;
+            cageLeft[c] -= value;
+            cageOpen[c]--;
+        }
+    }
+
+    private void leave(int idx, int value) {
+        for (int u : geometry.extraOf[idx])
+            extras[u - 3 * n] &= ~(1 << value);
+        int c = geometry.cageOf[idx];
+        if (c >= 0) {
+            cageUsed[c] &= ~(1 << value);
+            cageLeft[c] += value;
+            cageOpen[c]++;
+        }
+    }
+
+    private boolean search(int depth) {
+        if ((++nodes & CHECK_EVERY) == 0 && expired())
+            return true;
+        if (depth == emptyCount)
+            return ++found >= limit;
+
+        // pick the most constrained empty cell
+        int best = depth;
+        int bestFree = 0;
+        int bestCount = n + 1;
+        for (int k = depth; k < emptyCount; k++) {
+            int idx = empty[k];
+            int free = free(idx);
+            int count = Integer.bitCount(free);
+            if (count < bestCount) {
+                best = k;
+                bestFree = free;
+                bestCount = count;
+                if (count <= 1)
+                    break;
+            }
+        }
+        if (bestCount == 0)
+            return false;
+
+        // before branching, look for a digit with a single place left in some unit
+        if (bestCount > 1) {
+            for (int u = 0; u < units.length; u++) {
+                int used = u < n ? rows[u] : u < 2 * n ? cols[u - n] : u < 3 * n ? boxes[u - 2 * n] : extras[u - 3 * n];
+                int once = 0;
+                int twice = 0;
+                for (int idx : units[u]) {
+                    if (cells[idx] == 0) {
+                        int free = free(idx);
+                        twice |= once & free;
+                        once |= free;
+                    }
+                }
+                if ((once | used) != all)
+                    return false;
+                int single = once & ~twice;
+                if (single != 0) {
+                    bestFree = single & -single;
+                    for (int idx : units[u]) {
+                        if (cells[idx] == 0 && (free(idx) & bestFree) != 0)
+                            best = slot[idx];
+                    }
+                    break;
+                }
+            }
+        }
+
+        int idx = empty[best];
+        empty[best] = empty[depth];
+        empty[depth] = idx;
+        slot[empty[best]] = best;
+        slot[idx] = depth;
+        int r = rowOf[idx];
+        int c = colOf[idx];
+        int b = boxOf[idx];
+        while (bestFree != 0) {
+            int bit = bestFree & -bestFree;
+            bestFree ^= bit;
+            rows[r] |= bit;
+            cols[c] |= bit;
+            boxes[b] |= bit;
+            cells[idx] = Integer.numberOfTrailingZeros(bit);
+            if (variant)
+                enter(idx, cells[idx]);
+            if (search(depth + 1))
+                return true;
+            backtracks++;
+            if (variant)
+                leave(idx, cells[idx]);
+            rows[r] ^= bit;
+            cols[c] ^= bit;
+            boxes[b] ^= bit;
+        }
+        cells[idx] = 0;
+        return false;
+    }
+}
@@ -16,6 +16,11 @@ public abstract class Board {
 
     public abstract int flags(int i, int j);
 
+    // digits still possible in an empty cell, bit v for digit v; 0 when nothing is tracked
+    public int candidates(int i, int j) {
+        return 0;
+    }
+
     public boolean readonly(int i, int j) {
         return (flags(i, j) & READONLY_MASK) > 0;
     }
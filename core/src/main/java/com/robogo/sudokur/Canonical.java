@@ -0,0 +1,257 @@
+package com.robogo.sudokur;
+
+import java.util.Arrays;
+
+// canonical form of a 9x9 puzzle under the validity-preserving symmetries: transposition, band and stack
+// order, rows within bands, columns within stacks and digit relabeling. Equivalent puzzles get the same form.
+//
+// the form is the smallest of all those images read row by row, digits renamed 1, 2, .. in order of first
+// appearance and empty cells sorting after every digit. It is built one row at a time, keeping every
+// arrangement that ties for the smallest prefix; once rows and columns are told apart by their clues the
+// ties die out quickly. Not thread-safe: keep one per thread
+public final class Canonical {
+    private static final int N = 9;
+    private static final int EMPTY = 15;
+    private static final int MAX_STATES = 1 << 15;     // only nearly empty, highly symmetric grids get near this
+    private static final int[][] THREE = { { 0, 1, 2 }, { 0, 2, 1 }, { 1, 0, 2 }, { 1, 2, 0 }, { 2, 0, 1 }, { 2, 1, 0 } };
+    private static final int[][] PERMS = columnPerms();
+    // for three cells' occupancy, leftmost bit first: the occupancy with the clues moved left, and the
+    // orders of THREE that get there
+    private static final int[] LEFT = new int[8];
+    private static final int[][] LEFTMOST = new int[8][];
+    private static final ThreadLocal<Canonical> local = new ThreadLocal<Canonical>() {
+        @Override
+        protected Canonical initialValue() {
+            return new Canonical();
+        }
+    };
+
+    static {
+        for (int bits = 0; bits < 8; bits++) {
+            int[] moved = new int[6];
+            for (int w = 0; w < 6; w++) {
+                for (int k = 0; k < 3; k++)
+                    moved[w] |= (bits >> (2 - THREE[w][k]) & 1) << (2 - k);
+                LEFT[bits] = Math.max(LEFT[bits], moved[w]);
+            }
+            int count = 0;
+            for (int w = 0; w < 6; w++) {
+                if (moved[w] == LEFT[bits])
+                    count++;
+            }
+            LEFTMOST[bits] = new int[count];
+            for (int w = 0; w < 6; w++) {
+                if (moved[w] == LEFT[bits])
+                    LEFTMOST[bits][--count] = w;
+            }
+        }
+    }
+
+    private final int[][] cells = new int[2][N * N];   // as given and transposed
+    private final int[] form = new int[N * N];
+    private final int[] row = new int[N];
+    private final int[] labels = new int[N + 1];
+    private State from = new State(1 << 12);
+    private State to = new State(1 << 12);
+
+    public static long hashOf(Grid grid) {
+        return local.get().hash(grid);
+    }
+
+    public Grid form(Grid grid) {
+        canonicalize(grid);
+        Grid result = new Grid(N);
+        for (int idx = 0; idx < form.length; idx++)
+            result.setValue(idx, form[idx] == EMPTY ? 0 : form[idx]);
+        return result;
+    }
+
+    public long hash(Grid grid) {
+        canonicalize(grid);
+        long h = 0;
+        for (int i = 0; i < N; i++) {
+            long packed = 0;
+            for (int j = 0; j < N; j++)
+                packed = packed << 4 | form[i * N + j];
+            h = Rng.mix64(h ^ packed);
+        }
+        return h;
+    }
+
+    private void canonicalize(Grid grid) {
+        if (grid.size() != N)
+            throw new IllegalArgumentException("Only 9x9 grids have a canonical form");
+        for (int i = 0; i < N; i++) {
+            for (int j = 0; j < N; j++) {
+                int value = grid.value(i * N + j);
+                cells[0][i * N + j] = value;
+                cells[1][j * N + i] = value;
+            }
+        }
+
+        firstRow();
+        for (int pos = 1; pos < N; pos++) {
+            to.count = 0;
+            boolean any = false;
+            for (int s = 0; s < from.count; s++) {
+                int used = from.used[s];
+                int band = pos % 3 == 0 ? -1 : from.last[s] / 3;
+                for (int r = 0; r < N; r++) {
+                    if ((used & 1 << r) != 0)
+                        continue;
+                    if (band < 0 ? (used >> (r / 3 * 3) & 7) != 0 : r / 3 != band)
+                        continue;
+                    int cmp = place(s, r, pos, any);
+                    if (cmp > 0)
+                        continue;
+                    if (cmp < 0 || !any) {
+                        to.count = 0;
+                        any = true;
+                    }
+                    if (to.count < MAX_STATES)
+                        to.add(from.t[s], from.p[s], used | 1 << r, r, labels, labels[0]);
+                }
+            }
+            State swap = from;
+            from = to;
+            to = swap;
+        }
+    }
+
+    // digits in a row are distinct, so the first row's labels are always 1, 2, .. and only where its clues
+    // sit matters: the best column orders put the fullest stacks first and each stack's clues to the left
+    private void firstRow() {
+        from.count = 0;
+        int best = -1;
+        for (int t = 0; t < 2; t++) {
+            for (int r = 0; r < N; r++) {
+                int mask = 0;
+                for (int c = 0; c < N; c++) {
+                    if (cells[t][r * N + c] != 0)
+                        mask |= 1 << (N - 1 - c);
+                }
+                for (int s = 0; s < 6; s++) {
+                    int[] stacks = THREE[s];
+                    int a = mask >> (6 - 3 * stacks[0]) & 7;
+                    int b = mask >> (6 - 3 * stacks[1]) & 7;
+                    int c = mask >> (6 - 3 * stacks[2]) & 7;
+                    int packed = LEFT[a] << 6 | LEFT[b] << 3 | LEFT[c];
+                    if (packed < best)
+                        continue;
+                    if (packed > best) {
+                        from.count = 0;
+                        best = packed;
+                    }
+                    for (int wa : LEFTMOST[a]) {
+                        for (int wb : LEFTMOST[b]) {
+                            for (int wc : LEFTMOST[c]) {
+                                if (from.count < MAX_STATES)
+                                    addFirst(t, r, ((s * 6 + wa) * 6 + wb) * 6 + wc);
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        int label = 1;
+        for (int c = 0; c < N; c++)
+            form[c] = (best >> (N - 1 - c) & 1) != 0 ? label++ : EMPTY;
+    }
+
+    private void addFirst(int t, int r, int p) {
+        Arrays.fill(labels, 0);
+        labels[0] = 1;
+        int[] perm = PERMS[p];
+        for (int c = 0; c < N; c++) {
+            int value = cells[t][r * N + perm[c]];
+            if (value != 0)
+                labels[value] = labels[0]++;
+        }
+        from.add(t, p, 1 << r, r, labels, labels[0]);
+    }
+
+    // lays row r of state s out as row pos of the form, comparing as it goes; labels is left holding the
+    // state's renaming extended by this row, with the next free label in labels[0]
+    private int place(int s, int r, int pos, boolean any) {
+        System.arraycopy(from.labels, s * (N + 1), labels, 0, N + 1);
+        int[] source = cells[from.t[s]];
+        int[] perm = PERMS[from.p[s]];
+        int base = pos * N;
+        int cmp = any ? 0 : -1;
+        for (int c = 0; c < N; c++) {
+            int value = source[r * N + perm[c]];
+            int code;
+            if (value == 0)
+                code = EMPTY;
+            else if (labels[value] != 0)
+                code = labels[value];
+            else
+                code = labels[value] = labels[0]++;
+            if (cmp == 0) {
+                if (code > form[base + c])
+                    return 1;
+                if (code < form[base + c])
+                    cmp = -1;
+            }
+            row[c] = code;
+        }
+        if (cmp < 0)
+            System.arraycopy(row, 0, form, base, N);
+        return cmp;
+    }
+
+    // every column order that keeps stacks intact: stack order times the order within each stack
+    private static int[][] columnPerms() {
+        int[][] perms = new int[6 * 6 * 6 * 6][N];
+        int p = 0;
+        for (int[] stacks : THREE) {
+            for (int[] a : THREE) {
+                for (int[] b : THREE) {
+                    for (int[] c : THREE) {
+                        int[][] within = { a, b, c };
+                        for (int col = 0; col < N; col++)
+                            perms[p][col] = stacks[col / 3] * 3 + within[col / 3][col % 3];
+                        p++;
+                    }
+                }
+            }
+        }
+        return perms;
+    }
+
+    // arrangements still in the running; labels[k * 10] is the next free label, the rest map digit to label
+    private static final class State {
+        int[] t;
+        int[] p;
+        int[] used;
+        int[] last;
+        int[] labels;
+        int count;
+
+        State(int capacity) {
+            t = new int[capacity];
+            p = new int[capacity];
+            used = new int[capacity];
+            last = new int[capacity];
+            labels = new int[capacity * (N + 1)];
+        }
+
+        void add(int t, int p, int used, int last, int[] labels, int next) {
+            if (count == this.t.length) {
+                int capacity = count * 2;
+                this.t = Arrays.copyOf(this.t, capacity);
+                this.p = Arrays.copyOf(this.p, capacity);
+                this.used = Arrays.copyOf(this.used, capacity);
+                this.last = Arrays.copyOf(this.last, capacity);
+                this.labels = Arrays.copyOf(this.labels, capacity * (N + 1));
+            }
+            this.t[count] = t;
+            this.p[count] = p;
+            this.used[count] = used;
+            this.last[count] = last;
+            System.arraycopy(labels, 0, this.labels, count * (N + 1), N + 1);
+            this.labels[count * (N + 1)] = next;
+            count++;
+        }
+    }
+}
@@ -0,0 +1,291 @@
+package com.robogo.sudokur;
+
+class DlxSolver implements Solver {
+    private static final int ROOT = 0;
+    private static final int CHECK_EVERY = 0x3FF;
+
+    private final int n;
+    private final int columns;
+    // node arena: index 0 is the root, 1..columns the column headers, the rest option nodes
+    private final int[] left;
+    private final int[] right;
+    private final int[] up;
+    private final int[] down;
+    private final int[] column;
+    private final int[] option;
+    private final int[] size;
+    private final int[] first;      // first node of each option
+    private final boolean[] covered;
+    private final int[] given;
+    private final int[] solution;
+    private final int[] cells;
+    private int givenCount;
+    private int limit;
+    private int found;
+    private long nodes;
+    private long backtracks;
+    private volatile boolean cancelled;
+    private boolean timed;
+    private long deadline;
+    private boolean aborted;
+
+    public DlxSolver() {
+        this(Geometry.of(3));
+    }
+
+    // exact cover of cell, row, column and box (or jigsaw region) columns; cage sums don't fit that model
+    public DlxSolver(Geometry geometry) {
+        if (geometry.variant)
+            throw new IllegalArgumentException("DLX solves plain and jigsaw grids only");
+        n = geometry.size;
+        int count = geometry.cells;
+        int options = count * n;    // one per (cell, value)
+        columns = 4 * count;        // cell, row-digit, col-digit, box-digit
+        left = new int[1 + columns + 4 * options];
+        right = new int[left.length];
+        up = new int[left.length];
+        down = new int[left.length];
+        column = new int[left.length];
+        option = new int[left.length];
+        size = new int[1 + columns];
+        first = new int[options];
+        covered = new boolean[1 + columns];
+        given = new int[count];
+        solution = new int[count];
+        cells = new int[count];
+
+        for (int h = 0; h <= columns; h++) {
+            left[h] = h == 0 ? columns : h - 1;
+            right[h] = h == columns ? 0 : h + 1;
+            up[h] = h;
+            down[h] = h;
+            column[h] = h;
+        }
+        int node = columns + 1;
+        for (int o = 0; o < options; o++) {
+            int cell = o / n;
+            int d = o % n;
+            first[o] = node;
+            append(node, 1 + cell, o);
+            append(node + 1, 1 + count + geometry.rowOf[cell] * n + d, o);
+            append(node + 2, 1 + 2 * count + geometry.colOf[cell] * n + d, o);
+            append(node + 3, 1 + 3 * count + geometry.boxOf[cell] * n + d, o);
+            for (int k = 0; k < 4; k++) {
+                left[node + k] = node + (k + 3) % 4;
+                right[node + k] = node + (k + 1) % 4;
+            }
+            node += 4;
+        }
+    }
+
+    @Override
+    public boolean solve(int[][] board) {
+        limit = 1;
+        found = 0;
+        if (!load(board))
+            return false;
+        boolean solved = run();
+        if (solved) {
+            for (int i = 0; i < cells.length; i++) {
+                int[] row = board[i / n];
+                row[i % n] = (row[i % n] & ~Board.VALUE_MASK) | cells[i];
+            }
+        }
+        unload();
+        return solved;
+    }
+
+    @Override
+    public boolean solve(Grid grid) {
+        limit = 1;
+        found = 0;
+        if (!load(grid))
+            return false;
+        boolean solved = run();
+        if (solved) {
+            for (int i = 0; i < cells.length; i++)
+                grid.setValue(i, cells[i]);
+        }
+        unload();
+        return solved;
+    }
+
+    @Override
+    public int countSolutions(int[][] board, int limit) {
+        this.limit = limit;
+        found = 0;
+        if (load(board)) {
+            run();
+            unload();
+        }
+        return found;
+    }
+
+    @Override
+    public int countSolutions(Grid grid, int limit) {
+        this.limit = limit;
+        found = 0;
+        if (load(grid)) {
+            run();
+            unload();
+        }
+        return found;
+    }
+
+    @Override
+    public void setDeadline(long deadline) {
+        this.deadline = deadline;
+        timed = true;
+    }
+
+    @Override
+    public void cancel() {
+        cancelled = true;
+    }
+
+    @Override
+    public boolean aborted() {
+        return aborted;
+    }
+
+    private void append(int node, int col, int o) {
+        column[node] = col;
+        option[node] = o;
+        up[node] = up[col];
+        down[node] = col;
+        down[up[col]] = node;
+        up[col] = node;
+        size[col]++;
+    }
+
+    private boolean load(int[][] board) {
+        givenCount = 0;
+        if (board.length != n)
+            return false;
+        for (int i = 0; i < cells.length; i++)
+            cells[i] = board[i / n][i % n] & Board.VALUE_MASK;
+        return prepare();
+    }
+
+    private boolean load(Grid grid) {
+        givenCount = 0;
+        if (grid.size() != n)
+            return false;
+        for (int i = 0; i < cells.length; i++)
+            cells[i] = grid.value(i);
+        return prepare();
+    }
+
+    private boolean prepare() {
+        for (int i = 0; i < cells.length; i++) {
+            int value = cells[i];
+            if (value == 0)
+                continue;
+            if (value > n) {
+                unload();
+                return false;
+            }
+            int node = first[i * n + value - 1];
+            for (int k = 0; k < 4; k++) {
+                if (covered[column[node + k]]) {
+                    unload();
+                    return false;
+                }
+            }
+            for (int k = 0; k < 4; k++)
+                cover(column[node + k]);
+            given[givenCount++] = node;
+        }
+        return true;
+    }
+
+    private void unload() {
+        while (givenCount > 0) {
+            int node = given[--givenCount];
+            for (int k = 3; k >= 0; k--)
+                uncover(column[node + k]);
+        }
+    }
+
+    private boolean run() {
+        nodes = 0;
+        backtracks = 0;
+        aborted = cancelled;
+        boolean result = !aborted && search(0) && !aborted;
+        if (Metrics.enabled) {
+            Metrics.SOLVER_NODES.add(nodes);
+            Metrics.SOLVER_BACKTRACKS.add(backtracks);
+        }
+        return result;
+    }
+
+    private boolean expired() {
+        if (cancelled || (timed && System.nanoTime() - deadline >= 0))
+            aborted = true;
+        return aborted;
+    }
+
+    private boolean search(int depth) {
+        if ((++nodes & CHECK_EVERY) == 0 && expired())
+            return true;
+        if (right[ROOT] == ROOT) {
+            if (found++ == 0) {
+                for (int k = 0; k < depth; k++) {
+                    int o = option[solution[k]];
+                    cells[o / n] = o % n + 1;
+                }
+            }
+            return found >= limit;
+        }
+
+        // pick the column with the fewest remaining options
+        int col = right[ROOT];
+        for (int h = right[col]; h != ROOT; h = right[h]) {
+            if (size[h] < size[col])
+                col = h;
+        }
+        if (size[col] == 0)
+            return false;
+
+        boolean done = false;
+        cover(col);
+        for (int r = down[col]; r != col && !done; r = down[r]) {
+            solution[depth] = r;
+            for (int j = right[r]; j != r; j = right[j])
+                cover(column[j]);
+            done = search(depth + 1);
+            if (!done)
+                backtracks++;
+            for (int j = left[r]; j != r; j = left[j])
+                uncover(column[j]);
+        }
+        uncover(col);
+        return done;
+    }
+
+    private void cover(int col) {
+        covered[col] = true;
+        right[left[col]] = right[col];
+        left[right[col]] = left[col];
+        for (int i = down[col]; i != col; i = down[i]) {
+            for (int j = right[i]; j != i; j = right[j]) {
+                down[up[j]] = down[j];
+                up[down[j]] = up[j];
+                size[column[j]]--;
+            }
+        }
+    }
+
+    private void uncover(int col) {
+        for (int i = up[col]; i != col; i = up[i]) {
+            for (int j = left[i]; j != i; j = left[j]) {
+                size[column[j]]++;
+                down[up[j]] = j;
+                up[down[j]] = j;
+            }
+        }
+        right[left[col]] = col;
+        left[right[col]] = col;
+        covered[col] = false;
+    }
+}
@@ -0,0 +1,6 @@
+package com.robogo.sudokur;
+
+// makes one puzzle of the given level; implementations may keep scratch state, so use one per thread
+public interface Generator {
+    Grid generate(int level, Rng rng);
+}
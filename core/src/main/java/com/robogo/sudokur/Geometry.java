@@ -0,0 +1,228 @@
+package com.robogo.sudokur;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// index tables for a board of box x box boxes; cells are numbered row * size + col.
+// Variants are built with Builder: jigsaw regions stand in for the boxes, X diagonals add units, and killer
+// cages add groups that may not repeat a digit and must add up to their sum
+final class Geometry {
+    static final int MIN_BOX = 2;
+    static final int MAX_BOX = 5;
+    private static final Geometry[] cache = new Geometry[MAX_BOX + 1];
+
+    final int box;
+    final int size;
+    final int cells;
+    final int all;          // bit v set for every value v
+    final int[] rowOf;
+    final int[] colOf;
+    final int[] boxOf;      // box, or jigsaw region
+    // units 0..size-1 are rows, size..2*size-1 columns, 2*size..3*size-1 boxes, then any diagonals;
+    // every unit holds each digit exactly once
+    final int[][] units;
+    final int[][] extraOf;  // units past row, column and box through each cell
+    final int[][] cages;
+    final int[] cageSum;
+    final int[] cageOf;     // -1 outside every cage
+    // every group a cell's digit must be unique in: its units, then its cage as units.length + cage
+    final int[][] groupsOf;
+    final int groups;
+    final int[][] peers;
+    final boolean variant;  // diagonals or cages: more to a cell than its row, column and box
+
+    private Geometry(int box, int[] regions, boolean diagonals, int[][] cages, int[] cageSum) {
+        this.box = box;
+        size = box * box;
+        cells = size * size;
+        all = (int) ((1L << (size + 1)) - 2);
+        rowOf = new int[cells];
+        colOf = new int[cells];
+        boxOf = new int[cells];
+        for (int i = 0; i < cells; i++) {
+            rowOf[i] = i / size;
+            colOf[i] = i % size;
+            boxOf[i] = regions != null ? regions[i] : rowOf[i] / box * box + colOf[i] / box;
+        }
+        units = new int[3 * size + (diagonals ? 2 : 0)][size];
+        int[] fill = new int[units.length];
+        for (int i = 0; i < cells; i++) {
+            units[rowOf[i]][fill[rowOf[i]]++] = i;
+            units[size + colOf[i]][fill[size + colOf[i]]++] = i;
+            units[2 * size + boxOf[i]][fill[2 * size + boxOf[i]]++] = i;
+        }
+        extraOf = new int[cells][];
+        for (int i = 0; i < cells; i++) {
+            int count = 0;
+            int[] extra = new int[2];
+            if (diagonals && rowOf[i] == colOf[i])
+                extra[count++] = 3 * size;
+            if (diagonals && rowOf[i] + colOf[i] == size - 1)
+                extra[count++] = 3 * size + 1;
+            extraOf[i] = Arrays.copyOf(extra, count);
+            for (int u : extraOf[i])
+                units[u][fill[u]++] = i;
+        }
+        this.cages = cages;
+        this.cageSum = cageSum;
+        cageOf = new int[cells];
+        Arrays.fill(cageOf, -1);
+        for (int c = 0; c < cages.length; c++) {
+            for (int i : cages[c])
+                cageOf[i] = c;
+        }
+        groups = units.length + cages.length;
+        groupsOf = new int[cells][];
+        for (int i = 0; i < cells; i++) {
+            int[] group = new int[3 + extraOf[i].length + (cageOf[i] >= 0 ? 1 : 0)];
+            group[0] = rowOf[i];
+            group[1] = size + colOf[i];
+            group[2] = 2 * size + boxOf[i];
+            System.arraycopy(extraOf[i], 0, group, 3, extraOf[i].length);
+            if (cageOf[i] >= 0)
+                group[group.length - 1] = units.length + cageOf[i];
+            groupsOf[i] = group;
+        }
+        variant = diagonals || cages.length > 0;
+
+        peers = new int[cells][];
+        int[] scratch = new int[cells];
+        boolean[] seen = new boolean[cells];
+        for (int i = 0; i < cells; i++) {
+            int count = 0;
+            for (int g : groupsOf[i]) {
+                for (int j : g < units.length ? units[g] : cages[g - units.length]) {
+                    if (j != i && !seen[j]) {
+                        seen[j] = true;
+                        scratch[count++] = j;
+                    }
+                }
+            }
+            peers[i] = Arrays.copyOf(scratch, count);
+            Arrays.sort(peers[i]);
+            for (int k = 0; k < count; k++)
+                seen[scratch[k]] = false;
+        }
+    }
+
+    static Geometry of(int box) {
+        if (box < MIN_BOX || box > MAX_BOX)
+            throw new IllegalArgumentException("Unsupported box size " + box);
+        // all fields are final, so an instance seen without the lock is fully built
+        Geometry geometry = cache[box];
+        if (geometry != null)
+            return geometry;
+        synchronized (cache) {
+            if (cache[box] == null)
+                cache[box] = new Geometry(box, null, false, new int[0][], new int[0]);
+            return cache[box];
+        }
+    }
+
+    // null when size isn't the square of a supported box size
+    static Geometry forSize(int size) {
+        for (int box = MIN_BOX; box <= MAX_BOX; box++) {
+            if (box * box == size)
+                return of(box);
+        }
+        return null;
+    }
+
+    // whether every full cage adds up; cages with an empty cell are left alone
+    boolean cagesAddUp(Grid grid) {
+        for (int c = 0; c < cages.length; c++) {
+            int sum = 0;
+            for (int i : cages[c]) {
+                int value = grid.value(i);
+                if (value == 0) {
+                    sum = cageSum[c];
+                    break;
+                }
+                sum += value;
+            }
+            if (sum != cageSum[c])
+                return false;
+        }
+        return true;
+    }
+
+    // digits one cell of a cage can hold while open cells, this one included, still have to make up left
+    int sumMask(int left, int open) {
+        int rest = open - 1;
+        int lo = Math.max(1, left - rest * (2 * size - rest + 1) / 2);
+        int hi = Math.min(size, left - rest * (rest + 1) / 2);
+        return lo > hi ? 0 : (1 << (hi + 1)) - (1 << lo);
+    }
+
+    static final class Builder {
+        private final int box;
+        private final int size;
+        private int[] regions;
+        private boolean diagonals;
+        private final List<int[]> cages = new ArrayList<>();
+        private final List<Integer> sums = new ArrayList<>();
+
+        Builder(int box) {
+            if (box < MIN_BOX || box > MAX_BOX)
+                throw new IllegalArgumentException("Unsupported box size " + box);
+            this.box = box;
+            size = box * box;
+        }
+
+        // both long diagonals hold every digit once
+        Builder diagonals() {
+            diagonals = true;
+            return this;
+        }
+
+        // jigsaw: the region of each cell, 0..size-1 with size cells apiece, in place of the boxes
+        Builder regions(int[] regionOf) {
+            if (regionOf.length != size * size)
+                throw new IllegalArgumentException("Need a region for each of " + size * size + " cells");
+            int[] count = new int[size];
+            for (int r : regionOf) {
+                if (r < 0 || r >= size || ++count[r] > size)
+                    throw new IllegalArgumentException("Regions must be 0.." + (size - 1) + " with " + size + " cells each");
+            }
+            regions = regionOf.clone();
+            return this;
+        }
+
+        // killer cage: the cells hold different digits adding up to sum
+        Builder cage(int sum, int... cells) {
+            int min = cells.length * (cells.length + 1) / 2;
+            int max = cells.length * (2 * size - cells.length + 1) / 2;
+            if (cells.length == 0 || cells.length > size || sum < min || sum > max)
+                throw new IllegalArgumentException("No " + cells.length + " different digits add up to " + sum);
+            for (int[] cage : cages) {
+                for (int i : cage) {
+                    for (int j : cells) {
+                        if (i == j)
+                            throw new IllegalArgumentException("Cell " + j + " is in two cages");
+                    }
+                }
+            }
+            for (int k = 0; k < cells.length; k++) {
+                if (cells[k] < 0 || cells[k] >= size * size)
+                    throw new IllegalArgumentException("No cell " + cells[k]);
+                for (int l = 0; l < k; l++) {
+                    if (cells[l] == cells[k])
+                        throw new IllegalArgumentException("Cell " + cells[k] + " is twice in a cage");
+                }
+            }
+            cages.add(cells.clone());
+            sums.add(sum);
+            return this;
+        }
+
+        Geometry build() {
+            if (regions == null && !diagonals && cages.isEmpty())
+                return of(box);
+            int[] sum = new int[sums.size()];
+            for (int c = 0; c < sum.length; c++)
+                sum[c] = sums.get(c);
+            return new Geometry(box, regions, diagonals, cages.toArray(new int[0][]), sum);
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.robogo.sudokur;
+
+// a board packed into one short per cell, value in the low byte and flags in the high byte
+public final class Grid {
+    private final int size;
+    private final short[] cells;
+
+    public Grid(int size) {
+        this(size, new short[size * size]);
+    }
+
+    private Grid(int size, short[] cells) {
+        this.size = size;
+        this.cells = cells;
+    }
+
+    public static Grid of(int[][] board) {
+        int n = board.length;
+        Grid grid = new Grid(n);
+        for (int i = 0; i < n; i++) {
+            int[] row = board[i];
+            for (int j = 0; j < n; j++)
+                grid.cells[i * n + j] = (short) row[j];
+        }
+        return grid;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int length() {
+        return cells.length;
+    }
+
+    public int get(int idx) {
+        return cells[idx] & 0xFFFF;
+    }
+
+    public int get(int i, int j) {
+        return cells[i * size + j] & 0xFFFF;
+    }
+
+    public void set(int idx, int cell) {
+        cells[idx] = (short) cell;
+    }
+
+    public void set(int i, int j, int cell) {
+        cells[i * size + j] = (short) cell;
+    }
+
+    public int value(int idx) {
+        return cells[idx] & Board.VALUE_MASK;
+    }
+
+    public void setValue(int idx, int value) {
+        cells[idx] = (short) ((cells[idx] & ~Board.VALUE_MASK) | value);
+    }
+
+    public Grid copy() {
+        return new Grid(size, cells.clone());
+    }
+
+    public int[][] toArray() {
+        int[][] board = new int[size][size];
+        for (int idx = 0; idx < cells.length; idx++)
+            board[idx / size][idx % size] = cells[idx] & 0xFFFF;
+        return board;
+    }
+}
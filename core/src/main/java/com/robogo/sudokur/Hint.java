@@ -0,0 +1,25 @@
+package com.robogo.sudokur;
+
+// the next digit that can be placed by logic, with the hardest technique needed and the cells it follows from
+public final class Hint {
+    public final Logic.Technique technique;
+    public final int cell;
+    public final int row;
+    public final int col;
+    public final int value;
+    public final int[] support;
+
+    Hint(Logic.Technique technique, int cell, int row, int col, int value, int[] support) {
+        this.technique = technique;
+        this.cell = cell;
+        this.row = row;
+        this.col = col;
+        this.value = value;
+        this.support = support;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: %d at %d,%d from %d cells", technique, value, row + 1, col + 1, support.length);
+    }
+}
@@ -0,0 +1,99 @@
+package com.robogo.sudokur;
+
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+// follows a board move by move and works out the next hint in the background once the player pauses
+public final class HintEngine {
+    private static final long IDLE_MS = 300;
+    private static final Logic.Technique MAX = Logic.Technique.X_WING;
+    private static final ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, "Hints");
+            t.setDaemon(true);
+            t.setPriority(Thread.MIN_PRIORITY);
+            return t;
+        }
+    });
+
+    static {
+        // every move reschedules, so drop the cancelled ones instead of letting them wait out their delay
+        executor.setRemoveOnCancelPolicy(true);
+    }
+
+    private final int size;
+    private final Logic board;      // candidates from the placed digits only, guarded by this
+    private final Logic scratch;    // guarded by itself
+    private final Runnable precompute = new Runnable() {
+        @Override
+        public void run() {
+            compute();
+        }
+    };
+    private int version;
+    private ScheduledFuture<?> pending;
+    private Hint hint;
+    private int hintVersion = -1;
+
+    public HintEngine(Geometry geometry) {
+        size = geometry.size;
+        board = new Logic(geometry);
+        scratch = new Logic(geometry);
+    }
+
+    public synchronized void reset(Grid grid) {
+        board.load(grid);
+        changed();
+    }
+
+    // candidates are the board's own masks, already updated for this move
+    public synchronized void update(int idx, int value, int[] candidates) {
+        board.set(idx, value, candidates);
+        changed();
+    }
+
+    // the precomputed hint if the board hasn't moved since, otherwise worked out now; null if logic is stuck
+    public Hint hint() {
+        synchronized (this) {
+            if (hintVersion == version)
+                return hint;
+        }
+        return compute();
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public synchronized boolean ready() {
+        return hintVersion == version;
+    }
+
+    private void changed() {
+        version++;
+        if (pending != null)
+            pending.cancel(false);
+        pending = executor.schedule(precompute, IDLE_MS, TimeUnit.MILLISECONDS);
+    }
+
+    private Hint compute() {
+        synchronized (scratch) {
+            int v;
+            synchronized (this) {
+                scratch.copy(board);
+                v = version;
+            }
+            Hint h = scratch.hint(MAX);
+            synchronized (this) {
+                if (v == version) {
+                    hint = h;
+                    hintVersion = v;
+                }
+            }
+            return h;
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.robogo.sudokur;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// log-linear histogram: 16 buckets per power of two, so percentiles are within about 6%. Safe to record
+// from several threads at once
+public final class Histogram {
+    private static final int SUB_BITS = 4;
+    private static final int SUB = 1 << SUB_BITS;
+
+    private final String name;
+    private final AtomicLongArray buckets = new AtomicLongArray((64 - SUB_BITS + 1) * SUB);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    public Histogram() {
+        this("latency");
+    }
+
+    public Histogram(String name) {
+        this.name = name;
+    }
+
+    public void record(long value) {
+        if (value < 0)
+            value = 0;
+        buckets.incrementAndGet(bucket(value));
+        count.incrementAndGet();
+        sum.addAndGet(value);
+        long m;
+        while (value > (m = max.get()) && !max.compareAndSet(m, value)) {
+        }
+    }
+
+    public long count() {
+        return count.get();
+    }
+
+    public long max() {
+        return max.get();
+    }
+
+    public double mean() {
+        long n = count.get();
+        return n == 0 ? 0 : (double) sum.get() / n;
+    }
+
+    // lower bound of the bucket holding the given fraction of the recorded values
+    public long percentile(double p) {
+        long rank = (long) Math.ceil(p * count.get());
+        long seen = 0;
+        for (int b = 0; b < buckets.length(); b++) {
+            seen += buckets.get(b);
+            if (seen >= rank && seen > 0)
+                return Math.min(lowest(b), max.get());
+        }
+        return max.get();
+    }
+
+    public void reset() {
+        for (int b = 0; b < buckets.length(); b++)
+            buckets.set(b, 0);
+        count.set(0);
+        sum.set(0);
+        max.set(0);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s count %d mean %.0f p50 %d p99 %d max %d",
+                name, count(), mean(), percentile(0.5), percentile(0.99), max());
+    }
+
+    private static int bucket(long value) {
+        if (value < SUB)
+            return (int) value;
+        int exp = 63 - Long.numberOfLeadingZeros(value);
+        return (exp - SUB_BITS + 1) * SUB + (int) ((value >>> (exp - SUB_BITS)) & (SUB - 1));
+    }
+
+    private static long lowest(int bucket) {
+        if (bucket < SUB)
+            return bucket;
+        int exp = bucket / SUB + SUB_BITS - 1;
+        return (1L << exp) | ((long) (bucket % SUB) << (exp - SUB_BITS));
+    }
+}
@@ -0,0 +1,159 @@
+package com.robogo.sudokur;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+// undo/redo log packed one move per int: code | row | col | the 16-bit cell it replaced.
+// positions are absolute move numbers; the ring grows up to MAX_CAPACITY and then drops the oldest moves
+final class History {
+    public static final int PUT = 0;
+    public static final int CLEAR = 1;
+    public static final int LOCK = 2;
+    public static final int FLAG = 3;
+
+    private static final int INITIAL_CAPACITY = 128;
+    private static final int MAX_CAPACITY = 1 << 16;
+    private static final int CELL_MASK = 0xFFFF;
+
+    private int[] entries = new int[INITIAL_CAPACITY];
+    private int first;      // oldest move still kept
+    private int top;        // next move to undo is top - 1
+    private int end;        // moves in [top, end) can be redone
+    private int last;       // slot of the move most recently undone or redone
+    private int[] flags = new int[16];  // positions of FLAG moves in [first, end), ascending
+    private int flagCount;
+    private int flagsBelowTop;
+
+    public static int code(int entry) {
+        return entry >>> 26;
+    }
+
+    public static int row(int entry) {
+        return (entry >>> 21) & 0x1F;
+    }
+
+    public static int col(int entry) {
+        return (entry >>> 16) & 0x1F;
+    }
+
+    public static int cell(int entry) {
+        return entry & CELL_MASK;
+    }
+
+    public void push(int code, int row, int col, int cell) {
+        end = top;
+        flagCount = flagsBelowTop;
+        if (end - first == entries.length) {
+            if (entries.length < MAX_CAPACITY)
+                grow();
+            else
+                dropOldest();
+        }
+        if (code == FLAG) {
+            if (flagCount == flags.length)
+                flags = Arrays.copyOf(flags, flagCount * 2);
+            flags[flagCount++] = top;
+            flagsBelowTop = flagCount;
+        }
+        entries[top & (entries.length - 1)] = code << 26 | row << 21 | col << 16 | (cell & CELL_MASK);
+        end = ++top;
+    }
+
+    public boolean canUndo() {
+        return top > first;
+    }
+
+    public boolean canRedo() {
+        return top < end;
+    }
+
+    public int undo() {
+        if (!canUndo())
+            throw new IllegalStateException("Nothing to undo");
+        top--;
+        if (flagsBelowTop > 0 && flags[flagsBelowTop - 1] == top)
+            flagsBelowTop--;
+        last = top & (entries.length - 1);
+        return entries[last];
+    }
+
+    public int redo() {
+        if (!canRedo())
+            throw new IllegalStateException("Nothing to redo");
+        if (flagsBelowTop < flagCount && flags[flagsBelowTop] == top)
+            flagsBelowTop++;
+        last = top & (entries.length - 1);
+        top++;
+        return entries[last];
+    }
+
+    // stores the cell as it was before the last undo or redo, so the move can be replayed the other way
+    public void replace(int cell) {
+        entries[last] = (entries[last] & ~CELL_MASK) | (cell & CELL_MASK);
+    }
+
+    // position just after the latest FLAG move, or -1 when there is none to go back to
+    public int checkpoint() {
+        return flagsBelowTop == 0 ? -1 : flags[flagsBelowTop - 1] + 1;
+    }
+
+    public int position() {
+        return top;
+    }
+
+    public int size() {
+        return top - first;
+    }
+
+    public void clear() {
+        first = top = end = 0;
+        flagCount = flagsBelowTop = 0;
+    }
+
+    public void write(DataOutput out) throws IOException {
+        out.writeInt(end - first);
+        out.writeInt(top - first);
+        for (int p = first; p < end; p++)
+            out.writeInt(entries[p & (entries.length - 1)]);
+    }
+
+    public void read(DataInput in) throws IOException {
+        int count = in.readInt();
+        int position = in.readInt();
+        if (count < 0 || count > MAX_CAPACITY || position < 0 || position > count)
+            throw new IOException("corrupt history");
+        clear();
+        while (entries.length < count)
+            entries = new int[entries.length * 2];
+        for (int p = 0; p < count; p++) {
+            int entry = in.readInt();
+            entries[p] = entry;
+            if (code(entry) == FLAG) {
+                if (flagCount == flags.length)
+                    flags = Arrays.copyOf(flags, flagCount * 2);
+                flags[flagCount++] = p;
+                if (p < position)
+                    flagsBelowTop = flagCount;
+            }
+        }
+        top = position;
+        end = count;
+    }
+
+    private void grow() {
+        int[] grown = new int[entries.length * 2];
+        for (int p = first; p < end; p++)
+            grown[p & (grown.length - 1)] = entries[p & (entries.length - 1)];
+        entries = grown;
+    }
+
+    private void dropOldest() {
+        if (flagCount > 0 && flags[0] == first) {
+            System.arraycopy(flags, 1, flags, 0, --flagCount);
+            flagsBelowTop--;
+        }
+        first++;
+    }
+}
@@ -0,0 +1,297 @@
+package com.robogo.sudokur;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+// autosave: every move is appended to a small journal, and every SNAPSHOT_EVERY moves the whole board,
+// history included, is written as a snapshot that replaces the journal.
+//
+// snapshot: int magic, int seq, board (see SudokuBoard.write)
+// journal:  int magic, int seq of the snapshot it follows, then one int per move
+//
+// files are only touched on a single background thread; moves are handed over in batches. The journal isn't
+// synced, so after a crash its tail may be zeroed or torn: replay stops at the first record that can't be a move
+public final class Journal {
+    static final int PUT = History.PUT;
+    static final int CLEAR = History.CLEAR;
+    static final int LOCK = History.LOCK;
+    static final int FLAG = History.FLAG;
+    static final int UNDO = 4;
+    static final int REDO = 5;
+    static final int UNDO_N = 6;
+
+    private static final int SNAPSHOT_MAGIC = 0x53555353;  // "SUSS"
+    private static final int JOURNAL_MAGIC = 0x5355534A;   // "SUSJ"
+    private static final int SNAPSHOT_EVERY = 256;
+    private static final long FLUSH_DELAY_MS = 500;
+
+    private final File snapshotFile;
+    private final File journalFile;
+    private final ScheduledExecutorService executor;
+    private final Runnable drain = new Runnable() {
+        @Override
+        public void run() {
+            drain();
+        }
+    };
+
+    // guarded by this; filled on the caller's thread, emptied by drain()
+    private int[] pending = new int[64];
+    private int pendingCount;
+    private byte[] pendingSnapshot;
+    private int pendingSeq;
+    private boolean scheduled;
+
+    private int seq;
+    private int sinceSnapshot;
+    private FileOutputStream journal;   // only touched by drain()
+
+    public Journal(File dir) {
+        snapshotFile = new File(dir, "game.snapshot");
+        journalFile = new File(dir, "game.journal");
+        executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "Journal");
+                t.setDaemon(true);
+                return t;
+            }
+        });
+    }
+
+    public static int record(int op, int row, int col, int arg) {
+        return op << 26 | row << 21 | col << 16 | arg;
+    }
+
+    // returns true when enough moves have piled up that the caller should take a snapshot
+    public boolean append(int record) {
+        synchronized (this) {
+            if (pendingCount == pending.length)
+                pending = Arrays.copyOf(pending, pendingCount * 2);
+            pending[pendingCount++] = record;
+            schedule(FLUSH_DELAY_MS);
+        }
+        return ++sinceSnapshot >= SNAPSHOT_EVERY;
+    }
+
+    public void snapshot(SudokuBoard board) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(512);
+        try {
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(SNAPSHOT_MAGIC);
+            out.writeInt(seq + 1);
+            board.write(out);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        synchronized (this) {
+            // the snapshot covers every move so far, so anything not yet written is dropped with the old journal
+            pendingSnapshot = bytes.toByteArray();
+            pendingSeq = ++seq;
+            pendingCount = 0;
+            schedule(0);
+        }
+        sinceSnapshot = 0;
+    }
+
+    public void flush() {
+        synchronized (this) {
+            if (pendingCount > 0 || pendingSnapshot != null)
+                schedule(0);
+        }
+    }
+
+    // waits for earlier writes, then rebuilds the board from the snapshot and replays the journal;
+    // false if there is no usable snapshot
+    public boolean restore(SudokuBoard board) throws IOException {
+        try {
+            executor.submit(drain).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (ExecutionException e) {
+            throw new IOException(e.getCause());
+        }
+        if (!readSnapshot(board))
+            return false;
+
+        if (journalFile.exists()) {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(journalFile)));
+            try {
+                // a journal left over from an older snapshot is already part of this one
+                if (in.readInt() == JOURNAL_MAGIC && in.readInt() == seq) {
+                    while (replay(board, in.readInt())) {
+                    }
+                }
+            } catch (EOFException e) {
+                // end of journal, or a torn last write
+            } catch (RuntimeException e) {
+                // moves that passed the checks still didn't fit the board: fall back to the snapshot alone
+                Logger.getLogger("Journal").log(Level.WARNING, "corrupt journal, restoring the snapshot only", e);
+                if (!readSnapshot(board))
+                    return false;
+            } finally {
+                in.close();
+            }
+        }
+        // fold the replayed moves into a fresh snapshot so the journal starts empty again
+        snapshot(board);
+        return true;
+    }
+
+    public void close() {
+        flush();
+        executor.shutdown();
+        try {
+            executor.awaitTermination(2, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private boolean readSnapshot(SudokuBoard board) throws IOException {
+        if (!snapshotFile.exists())
+            return false;
+        DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(snapshotFile)));
+        try {
+            if (in.readInt() != SNAPSHOT_MAGIC)
+                return false;
+            seq = in.readInt();
+            board.read(in);
+            return true;
+        } catch (EOFException e) {
+            return false;
+        } finally {
+            in.close();
+        }
+    }
+
+    // false, with the board untouched, for a record that no move could have written
+    private static boolean replay(SudokuBoard board, int record) {
+        int op = record >>> 26;
+        int row = (record >>> 21) & 0x1F;
+        int col = (record >>> 16) & 0x1F;
+        int arg = record & 0xFFFF;
+        int size = board.row();
+        if (op <= FLAG && (row >= size || col >= size))
+            return false;
+        switch (op) {
+            case PUT:
+                if (arg < 1 || arg > size || board.readonly(row, col))
+                    return false;
+                board.set(row, col, arg);
+                return true;
+            case CLEAR:
+                if (arg != 0 || board.readonly(row, col))
+                    return false;
+                board.clear(row, col);
+                return true;
+            case LOCK:
+                if (arg > 1)
+                    return false;
+                board.lock(row, col, arg != 0);
+                return true;
+            case FLAG:
+                if (arg > 1)
+                    return false;
+                board.flag(row, col, arg != 0);
+                return true;
+            case UNDO:
+            case REDO:
+            case UNDO_N:
+                if ((record & 0x3FFFFFF) != 0)
+                    return false;
+                if (op == UNDO)
+                    board.undo();
+                else if (op == REDO)
+                    board.redo();
+                else
+                    board.undoN();
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private void schedule(long delay) {
+        if (!scheduled || delay == 0) {
+            scheduled = true;
+            executor.schedule(drain, delay, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void drain() {
+        byte[] snapshot;
+        int snapshotSeq;
+        int[] records;
+        int count;
+        synchronized (this) {
+            snapshot = pendingSnapshot;
+            snapshotSeq = pendingSeq;
+            records = pending;
+            count = pendingCount;
+            pendingSnapshot = null;
+            pending = new int[Math.max(64, pendingCount)];
+            pendingCount = 0;
+            scheduled = false;
+        }
+        try {
+            if (snapshot != null)
+                writeSnapshot(snapshot, snapshotSeq);
+            if (count > 0 && journal != null) {
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream(count * 4);
+                DataOutputStream out = new DataOutputStream(bytes);
+                for (int k = 0; k < count; k++)
+                    out.writeInt(records[k]);
+                journal.write(bytes.toByteArray());
+            }
+        } catch (IOException e) {
+            // autosave is best effort; the next snapshot starts over
+            closeJournal();
+        }
+    }
+
+    private void writeSnapshot(byte[] snapshot, int snapshotSeq) throws IOException {
+        closeJournal();
+        File tmp = new File(snapshotFile.getPath() + ".tmp");
+        FileOutputStream out = new FileOutputStream(tmp);
+        try {
+            out.write(snapshot);
+            out.getFD().sync();
+        } finally {
+            out.close();
+        }
+        if (!tmp.renameTo(snapshotFile))
+            throw new IOException("cannot replace " + snapshotFile);
+
+        journal = new FileOutputStream(journalFile);
+        DataOutputStream header = new DataOutputStream(journal);
+        header.writeInt(JOURNAL_MAGIC);
+        header.writeInt(snapshotSeq);
+    }
+
+    private void closeJournal() {
+        if (journal != null) {
+            try {
+                journal.close();
+            } catch (IOException ignored) {
+            }
+            journal = null;
+        }
+    }
+}
@@ -0,0 +1,497 @@
+package com.robogo.sudokur;
+
+public class Logic {
+    // ordered from easiest to hardest
+    public enum Technique {
+        NONE, NAKED_SINGLE, HIDDEN_SINGLE, POINTING, BOX_LINE, NAKED_SUBSET, HIDDEN_SUBSET, X_WING, GUESS
+    }
+
+    private final int n;
+    private final int cells;
+    private final int all;
+    private final int[] rowOf;
+    private final int[] colOf;
+    private final int[] boxOf;
+    private final int[][] units;
+    private final int[][] peers;
+    private final int[] values;
+    private final int[] cand;
+    private final int[] masks;      // scratch for subset searches
+    private final int[] support;    // cells behind the current hint, see hint()
+    private final boolean[] supporting;
+    private Technique hardest;
+    private int steps;
+    private boolean broken;
+    private int clashes;            // pairs of peers holding the same value, kept by set()
+    private boolean recording;
+    private int supportCount;
+    private int placed;
+
+    public Logic() {
+        this(Geometry.of(3));
+    }
+
+    public Logic(Geometry geometry) {
+        n = geometry.size;
+        cells = geometry.cells;
+        all = geometry.all;
+        rowOf = geometry.rowOf;
+        colOf = geometry.colOf;
+        boxOf = geometry.boxOf;
+        units = geometry.units;
+        peers = geometry.peers;
+        values = new int[cells];
+        cand = new int[cells];
+        masks = new int[n];
+        support = new int[cells];
+        supporting = new boolean[cells];
+    }
+
+    public static Technique grade(int[][] board) {
+        Geometry geometry = Geometry.forSize(board.length);
+        if (geometry == null)
+            throw new IllegalArgumentException("Unsupported board size " + board.length);
+        Logic logic = new Logic(geometry);
+        if (!logic.load(board))
+            return Technique.GUESS;
+        logic.propagate(Technique.X_WING);
+        return logic.solved() ? logic.hardest() : Technique.GUESS;
+    }
+
+    public boolean load(int[][] board) {
+        hardest = Technique.NONE;
+        steps = 0;
+        broken = board.length != n;
+        if (broken)
+            return false;
+        for (int i = 0; i < cells; i++) {
+            values[i] = 0;
+            cand[i] = all;
+        }
+        for (int i = 0; i < cells; i++) {
+            int value = board[rowOf[i]][colOf[i]] & Board.VALUE_MASK;
+            if (value > 0) {
+                if ((cand[i] & (1 << value)) == 0)
+                    broken = true;
+                place(i, value);
+            }
+        }
+        return !broken;
+    }
+
+    public boolean load(Grid grid) {
+        hardest = Technique.NONE;
+        steps = 0;
+        clashes = 0;
+        broken = grid.size() != n;
+        if (broken)
+            return false;
+        for (int i = 0; i < cells; i++) {
+            values[i] = 0;
+            cand[i] = all;
+        }
+        for (int i = 0; i < cells; i++) {
+            int value = grid.value(i);
+            if (value > 0) {
+                if ((cand[i] & (1 << value)) == 0) {
+                    broken = true;
+                    clashes += matches(i, value);
+                }
+                place(i, value);
+            }
+        }
+        return !broken;
+    }
+
+    public void copy(Logic other) {
+        System.arraycopy(other.values, 0, values, 0, cells);
+        System.arraycopy(other.cand, 0, cand, 0, cells);
+        hardest = Technique.NONE;
+        steps = 0;
+        clashes = other.clashes;
+        broken = other.broken;
+    }
+
+    // changes one cell and takes its and its peers' candidates from a board that tracks them,
+    // so a board can be followed move by move
+    public void set(int idx, int value, int[] candidates) {
+        int old = values[idx];
+        if (old == value)
+            return;
+        if (old > 0)
+            clashes -= matches(idx, old);
+        if (value > 0)
+            clashes += matches(idx, value);
+        values[idx] = value;
+        cand[idx] = candidates[idx];
+        for (int p : peers[idx])
+            cand[p] = candidates[p];
+        broken = clashes > 0;
+    }
+
+    // applies steps until one places a digit and describes it; the eliminations leading up to it stay applied.
+    // null when the position is broken or needs more than max
+    public Hint hint(Technique max) {
+        Technique worst = Technique.NONE;
+        recording = true;
+        supportCount = 0;
+        try {
+            while (!broken) {
+                placed = -1;
+                Technique t = apply(max);
+                if (t == Technique.NONE || broken)
+                    return null;
+                if (t.ordinal() > worst.ordinal())
+                    worst = t;
+                if (placed >= 0) {
+                    int[] cells = new int[supportCount];
+                    System.arraycopy(support, 0, cells, 0, supportCount);
+                    return new Hint(worst, placed, rowOf[placed], colOf[placed], values[placed], cells);
+                }
+            }
+            return null;
+        } finally {
+            for (int k = 0; k < supportCount; k++)
+                supporting[support[k]] = false;
+            recording = false;
+        }
+    }
+
+    public void store(int[][] board) {
+        for (int i = 0; i < cells; i++) {
+            int[] row = board[rowOf[i]];
+            row[colOf[i]] = (row[colOf[i]] & ~Board.VALUE_MASK) | values[i];
+        }
+    }
+
+    public Technique propagate(Technique max) {
+        while (!broken && step(max) != Technique.NONE) {
+        }
+        return hardest;
+    }
+
+    public Technique step(Technique max) {
+        Technique t = apply(max);
+        if (t != Technique.NONE && !broken) {
+            steps++;
+            if (t.ordinal() > hardest.ordinal())
+                hardest = t;
+        }
+        return broken ? Technique.NONE : t;
+    }
+
+    public Technique hardest() {
+        return hardest;
+    }
+
+    public int steps() {
+        return steps;
+    }
+
+    public boolean broken() {
+        return broken;
+    }
+
+    public boolean solved() {
+        if (broken)
+            return false;
+        for (int i = 0; i < cells; i++) {
+            if (values[i] == 0)
+                return false;
+        }
+        return true;
+    }
+
+    public int value(int idx) {
+        return values[idx];
+    }
+
+    public int candidates(int idx) {
+        return cand[idx];
+    }
+
+    private Technique apply(Technique max) {
+        if (nakedSingle())
+            return Technique.NAKED_SINGLE;
+        if (max.compareTo(Technique.HIDDEN_SINGLE) >= 0 && hiddenSingle())
+            return Technique.HIDDEN_SINGLE;
+        if (max.compareTo(Technique.POINTING) >= 0 && pointing())
+            return Technique.POINTING;
+        if (max.compareTo(Technique.BOX_LINE) >= 0 && boxLine())
+            return Technique.BOX_LINE;
+        for (int k = 2; k <= 4; k++) {
+            if (max.compareTo(Technique.NAKED_SUBSET) >= 0 && subsets(k, true))
+                return Technique.NAKED_SUBSET;
+            if (max.compareTo(Technique.HIDDEN_SUBSET) >= 0 && subsets(k, false))
+                return Technique.HIDDEN_SUBSET;
+        }
+        if (max.compareTo(Technique.X_WING) >= 0 && (xWing(true) || xWing(false)))
+            return Technique.X_WING;
+        return Technique.NONE;
+    }
+
+    private int matches(int idx, int value) {
+        int count = 0;
+        for (int p : peers[idx]) {
+            if (values[p] == value)
+                count++;
+        }
+        return count;
+    }
+
+    private void support(int idx) {
+        if (!supporting[idx]) {
+            supporting[idx] = true;
+            support[supportCount++] = idx;
+        }
+    }
+
+    private void place(int idx, int value) {
+        int bit = 1 << value;
+        placed = idx;
+        values[idx] = value;
+        cand[idx] = 0;
+        for (int p : peers[idx])
+            cand[p] &= ~bit;
+    }
+
+    private boolean eliminate(int idx, int bits) {
+        if (values[idx] != 0 || (cand[idx] & bits) == 0)
+            return false;
+        cand[idx] &= ~bits;
+        if (cand[idx] == 0)
+            broken = true;
+        return true;
+    }
+
+    private boolean nakedSingle() {
+        for (int i = 0; i < cells; i++) {
+            if (values[i] == 0) {
+                int count = Integer.bitCount(cand[i]);
+                if (count == 0) {
+                    broken = true;
+                    return false;
+                }
+                if (count == 1) {
+                    if (recording) {
+                        for (int p : peers[i]) {
+                            if (values[p] > 0)
+                                support(p);
+                        }
+                    }
+                    place(i, Integer.numberOfTrailingZeros(cand[i]));
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private boolean hiddenSingle() {
+        for (int[] unit : units) {
+            int once = 0;
+            int twice = 0;
+            int placed = 0;
+            for (int idx : unit) {
+                if (values[idx] > 0) {
+                    placed |= 1 << values[idx];
+                } else {
+                    twice |= once & cand[idx];
+                    once |= cand[idx];
+                }
+            }
+            if ((once | placed) != all) {
+                broken = true;
+                return false;
+            }
+            int single = once & ~twice & ~placed;
+            if (single != 0) {
+                int bit = single & -single;
+                for (int idx : unit) {
+                    if ((cand[idx] & bit) != 0) {
+                        if (recording) {
+                            for (int other : unit) {
+                                if (other != idx)
+                                    support(other);
+                            }
+                        }
+                        place(idx, Integer.numberOfTrailingZeros(bit));
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    // a digit confined to one row or column inside a box can't appear elsewhere on that line
+    private boolean pointing() {
+        for (int b = 0; b < n; b++) {
+            int[] box = units[2 * n + b];
+            for (int v = 1; v <= n; v++) {
+                int bit = 1 << v;
+                int row = -1;
+                int col = -1;
+                for (int idx : box) {
+                    if ((cand[idx] & bit) != 0) {
+                        row = row == -1 || row == rowOf[idx] ? rowOf[idx] : -2;
+                        col = col == -1 || col == colOf[idx] ? colOf[idx] : -2;
+                    }
+                }
+                boolean progress = false;
+                if (row >= 0) {
+                    for (int idx : units[row]) {
+                        if (boxOf[idx] != b)
+                            progress |= eliminate(idx, bit);
+                    }
+                }
+                if (col >= 0) {
+                    for (int idx : units[n + col]) {
+                        if (boxOf[idx] != b)
+                            progress |= eliminate(idx, bit);
+                    }
+                }
+                if (progress) {
+                    if (recording)
+                        supportHolding(box, bit);
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    // a digit confined to one box inside a row or column can't appear elsewhere in that box
+    private boolean boxLine() {
+        for (int u = 0; u < 2 * n; u++) {
+            for (int v = 1; v <= n; v++) {
+                int bit = 1 << v;
+                int box = -1;
+                for (int idx : units[u]) {
+                    if ((cand[idx] & bit) != 0)
+                        box = box == -1 || box == boxOf[idx] ? boxOf[idx] : -2;
+                }
+                if (box < 0)
+                    continue;
+                boolean progress = false;
+                for (int idx : units[2 * n + box]) {
+                    if (u < n ? rowOf[idx] != u : colOf[idx] != u - n)
+                        progress |= eliminate(idx, bit);
+                }
+                if (progress) {
+                    if (recording)
+                        supportHolding(units[u], bit);
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    // naked: k cells sharing k candidates; hidden: k digits sharing k cells
+    private boolean subsets(int k, boolean naked) {
+        for (int[] unit : units) {
+            int open = 0;
+            for (int i = 0; i < n; i++) {
+                int mask = 0;
+                if (naked) {
+                    mask = cand[unit[i]];
+                } else {
+                    for (int j = 0; j < n; j++) {
+                        if ((cand[unit[j]] & (2 << i)) != 0)
+                            mask |= 1 << j;
+                    }
+                }
+                masks[i] = Integer.bitCount(mask) >= 2 ? mask : 0;
+                if (masks[i] != 0)
+                    open++;
+            }
+            if (open > k && subset(unit, k, naked, 0, 0, 0, 0))
+                return true;
+        }
+        return false;
+    }
+
+    private boolean subset(int[] unit, int k, boolean naked, int start, int count, int chosen, int union) {
+        if (count == k) {
+            if (Integer.bitCount(union) != k)
+                return false;
+            boolean progress = false;
+            for (int i = 0; i < n; i++) {
+                if (naked) {
+                    if ((chosen & (1 << i)) == 0)
+                        progress |= eliminate(unit[i], union);
+                } else if ((union & (1 << i)) != 0) {
+                    progress |= eliminate(unit[i], all & ~(chosen << 1));
+                }
+            }
+            if (progress && recording) {
+                for (int i = 0; i < n; i++) {
+                    if (((naked ? chosen : union) & (1 << i)) != 0)
+                        support(unit[i]);
+                }
+            }
+            return progress;
+        }
+        for (int i = start; i < n; i++) {
+            if (masks[i] == 0)
+                continue;
+            int next = union | masks[i];
+            if (Integer.bitCount(next) <= k && subset(unit, k, naked, i + 1, count + 1, chosen | (1 << i), next))
+                return true;
+        }
+        return false;
+    }
+
+    // two lines holding a digit in the same two crossing positions clear it from those crossing lines
+    private boolean xWing(boolean byRow) {
+        int base = byRow ? 0 : n;
+        int cross = byRow ? n : 0;
+        for (int v = 1; v <= n; v++) {
+            int bit = 1 << v;
+            for (int a = 0; a < n; a++) {
+                int pa = positions(units[base + a], bit);
+                if (Integer.bitCount(pa) != 2)
+                    continue;
+                for (int b = a + 1; b < n; b++) {
+                    if (positions(units[base + b], bit) != pa)
+                        continue;
+                    boolean progress = false;
+                    for (int p = pa; p != 0; p &= p - 1) {
+                        int line = Integer.numberOfTrailingZeros(p);
+                        for (int i = 0; i < n; i++) {
+                            if (i != a && i != b)
+                                progress |= eliminate(units[cross + line][i], bit);
+                        }
+                    }
+                    if (progress) {
+                        if (recording) {
+                            for (int p = pa; p != 0; p &= p - 1) {
+                                support(units[base + a][Integer.numberOfTrailingZeros(p)]);
+                                support(units[base + b][Integer.numberOfTrailingZeros(p)]);
+                            }
+                        }
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    private void supportHolding(int[] unit, int bit) {
+        for (int idx : unit) {
+            if ((cand[idx] & bit) != 0)
+                support(idx);
+        }
+    }
+
+    private int positions(int[] unit, int bit) {
+        int mask = 0;
+        for (int i = 0; i < n; i++) {
+            if ((cand[unit[i]] & bit) != 0)
+                mask |= 1 << i;
+        }
+        return mask;
+    }
+}
@@ -0,0 +1,103 @@
+package com.robogo.sudokur;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+// process-wide counters and latency histograms. Everything is off until enabled is set; hot loops count
+// into plain fields and only publish here, so the disabled cost is one static read per solve or frame
+public final class Metrics {
+    public interface Tracer {
+        void begin(String section);
+
+        void end();
+    }
+
+    public static volatile boolean enabled;
+    private static volatile Tracer tracer;
+    private static final List<Object> registry = new ArrayList<>();
+
+    public static final Counter SOLVER_NODES = counter("solver.nodes");
+    public static final Counter SOLVER_BACKTRACKS = counter("solver.backtracks");
+    public static final Counter GENERATE_PROBES = counter("generate.probes");
+    public static final Counter REMOVAL_ITERATIONS = counter("generate.removals");
+    public static final Histogram[] GENERATE = new Histogram[Sudoku.LEVELS];
+
+    static {
+        for (int level = 0; level < GENERATE.length; level++)
+            GENERATE[level] = histogram("generate.level" + level + ".ns");
+    }
+
+    private Metrics() {
+    }
+
+    public static synchronized Counter counter(String name) {
+        Counter counter = new Counter(name);
+        registry.add(counter);
+        return counter;
+    }
+
+    public static synchronized Histogram histogram(String name) {
+        Histogram histogram = new Histogram(name);
+        registry.add(histogram);
+        return histogram;
+    }
+
+    public static void setTracer(Tracer tracer) {
+        Metrics.tracer = tracer;
+    }
+
+    public static void begin(String section) {
+        Tracer t = tracer;
+        if (t != null)
+            t.begin(section);
+    }
+
+    public static void end() {
+        Tracer t = tracer;
+        if (t != null)
+            t.end();
+    }
+
+    public static synchronized String snapshot() {
+        StringBuilder sb = new StringBuilder();
+        for (Object metric : registry)
+            sb.append(metric).append('\n');
+        return sb.toString();
+    }
+
+    public static synchronized void reset() {
+        for (Object metric : registry) {
+            if (metric instanceof Counter)
+                ((Counter) metric).value.set(0);
+            else
+                ((Histogram) metric).reset();
+        }
+    }
+
+    public static final class Counter {
+        private final String name;
+        private final AtomicLong value = new AtomicLong();
+
+        private Counter(String name) {
+            this.name = name;
+        }
+
+        public void add(long delta) {
+            value.addAndGet(delta);
+        }
+
+        public void increment() {
+            value.incrementAndGet();
+        }
+
+        public long get() {
+            return value.get();
+        }
+
+        @Override
+        public String toString() {
+            return name + " " + value.get();
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package com.robogo.sudokur;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.HashSet;
+import java.util.Set;
+
+// read-only bank of pregenerated 9x9 puzzles, memory-mapped so nothing is read until a puzzle is asked for
+//
+// layout (big endian):
+//   int magic, short version, byte size, byte levels
+//   levels x { int count, int offset }
+//   records of RECORD bytes, two givens per byte, high nibble first
+public final class PuzzleBank {
+    static final int MAGIC = 0x53554442;    // "SUDB"
+    static final int VERSION = 1;
+    static final int SIZE = 9;
+    static final int CELLS = SIZE * SIZE;
+    static final int RECORD = (CELLS + 1) / 2;
+    private static final int HEADER = 8;
+    private static final int INDEX_ENTRY = 8;
+
+    private final ByteBuffer buffer;
+    private final int[] counts;
+    private final int[] offsets;
+
+    private PuzzleBank(ByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        if (buffer.capacity() < HEADER || buffer.getInt(0) != MAGIC)
+            throw new IOException("not a puzzle bank");
+        if (buffer.getShort(4) != VERSION || buffer.get(6) != SIZE)
+            throw new IOException("unsupported puzzle bank version " + buffer.getShort(4));
+        int levels = buffer.get(7);
+        counts = new int[levels];
+        offsets = new int[levels];
+        for (int level = 0; level < levels; level++) {
+            counts[level] = buffer.getInt(HEADER + level * INDEX_ENTRY);
+            offsets[level] = buffer.getInt(HEADER + level * INDEX_ENTRY + 4);
+            if ((long) offsets[level] + (long) counts[level] * RECORD > buffer.capacity())
+                throw new IOException("truncated puzzle bank");
+        }
+    }
+
+    public static PuzzleBank open(File file) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = raf.getChannel();
+            return new PuzzleBank(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        } finally {
+            raf.close();    // the mapping stays valid after the channel is closed
+        }
+    }
+
+    public static PuzzleBank wrap(ByteBuffer buffer) throws IOException {
+        return new PuzzleBank(buffer);
+    }
+
+    public int levels() {
+        return counts.length;
+    }
+
+    public int count(int level) {
+        return counts[level];
+    }
+
+    public Grid get(int level, int index) {
+        if (index < 0 || index >= counts[level])
+            throw new IndexOutOfBoundsException("level " + level + " index " + index);
+        int pos = offsets[level] + index * RECORD;
+        Grid grid = new Grid(SIZE);
+        for (int idx = 0; idx < CELLS; idx += 2) {
+            int b = buffer.get(pos++);
+            grid.set(idx, (b >> 4) & 0xF);
+            if (idx + 1 < CELLS)
+                grid.set(idx + 1, b & 0xF);
+        }
+        return grid;
+    }
+
+    public Grid get(int level, Rng rng) {
+        return get(level, rng.nextInt(counts[level]));
+    }
+
+    public static void write(File file, Grid[][] puzzles) throws IOException {
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+        try {
+            out.writeInt(MAGIC);
+            out.writeShort(VERSION);
+            out.writeByte(SIZE);
+            out.writeByte(puzzles.length);
+            int offset = HEADER + puzzles.length * INDEX_ENTRY;
+            for (Grid[] level : puzzles) {
+                out.writeInt(level.length);
+                out.writeInt(offset);
+                offset += level.length * RECORD;
+            }
+            byte[] record = new byte[RECORD];
+            for (Grid[] level : puzzles) {
+                for (Grid grid : level) {
+                    pack(grid, record);
+                    out.write(record);
+                }
+            }
+        } finally {
+            out.close();
+        }
+    }
+
+    public static void build(File file, int perLevel, long seed) throws IOException {
+        Grid[][] puzzles = new Grid[Sudoku.LEVELS][];
+        Set<Long> seen = new HashSet<>();     // no two banked puzzles are the same up to symmetry
+        for (int level = 0; level < puzzles.length; level++)
+            puzzles[level] = Sudoku.generateBatch(level, perLevel, seed + level, seen);
+        write(file, puzzles);
+    }
+
+    private static void pack(Grid grid, byte[] record) {
+        if (grid.size() != SIZE)
+            throw new IllegalArgumentException("only " + SIZE + "x" + SIZE + " puzzles can be banked");
+        for (int idx = 0; idx < CELLS; idx += 2) {
+            int hi = grid.value(idx);
+            int lo = idx + 1 < CELLS ? grid.value(idx + 1) : 0;
+            record[idx / 2] = (byte) (hi << 4 | lo);
+        }
+    }
+
+    // PuzzleBank <file> <puzzles per level> [seed]
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("usage: PuzzleBank <file> <puzzles per level> [seed]");
+            System.exit(1);
+        }
+        File file = new File(args[0]);
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : System.currentTimeMillis();
+        long start = System.nanoTime();
+        build(file, Integer.parseInt(args[1]), seed);
+        System.out.printf("%s: %d bytes in %d ms%n", file, file.length(), (System.nanoTime() - start) / 1000000);
+    }
+}
@@ -0,0 +1,106 @@
+package com.robogo.sudokur;
+
+// a puzzle named by how to make it again: generator version, strategy, level and seed, packed into 40 bits
+// and written as 8 Crockford base32 characters. Only generators whose output depends on nothing but the seed
+// get ids; bump VERSION whenever a change makes the same seed give a different puzzle
+public final class PuzzleId {
+    static final int VERSION = 1;
+    private static final String ALPHABET = "0123456789ABCDEFGHJKMNPQRSTVWXYZ";
+    private static final int LENGTH = 8;
+
+    private final int version;
+    private final Sudoku.Strategy strategy;
+    private final int level;
+    private final int seed;
+
+    private PuzzleId(int version, Sudoku.Strategy strategy, int level, int seed) {
+        this.version = version;
+        this.strategy = strategy;
+        this.level = level;
+        this.seed = seed;
+    }
+
+    public static PuzzleId of(Sudoku.Strategy strategy, int level, int seed) {
+        if (strategy == Sudoku.Strategy.MINIMAL)
+            throw new IllegalArgumentException("MINIMAL puzzles depend on timing and cannot be regenerated");
+        if (level < 0 || level >= Sudoku.LEVELS)
+            throw new IllegalArgumentException("level " + level);
+        return new PuzzleId(VERSION, strategy, level, seed);
+    }
+
+    public static PuzzleId random(Sudoku.Strategy strategy, int level, Rng rng) {
+        return of(strategy, level, (int) rng.nextLong());
+    }
+
+    // the same puzzle for everyone on a given day, counted from the epoch
+    public static PuzzleId daily(long day, int level) {
+        return of(Sudoku.Strategy.SEARCH, level, (int) Rng.mix64(day * Sudoku.LEVELS + level));
+    }
+
+    public static PuzzleId parse(String text) {
+        if (text.length() != LENGTH)
+            throw new IllegalArgumentException("bad puzzle id " + text);
+        long bits = 0;
+        for (int k = 0; k < LENGTH; k++) {
+            int digit = decode(text.charAt(k));
+            if (digit < 0)
+                throw new IllegalArgumentException("bad puzzle id " + text);
+            bits = bits << 5 | digit;
+        }
+        int version = (int) (bits >>> 36);
+        int strategy = (int) (bits >>> 34) & 3;
+        if (version != VERSION)
+            throw new IllegalArgumentException("puzzle id " + text + " is from generator version " + version);
+        if (strategy >= Sudoku.Strategy.values().length)
+            throw new IllegalArgumentException("bad puzzle id " + text);
+        return of(Sudoku.Strategy.values()[strategy], (int) (bits >>> 32) & 3, (int) bits);
+    }
+
+    public Grid generate() {
+        return Sudoku.newGenerator(strategy).generate(level, new Rng(seed));
+    }
+
+    public Sudoku.Strategy strategy() {
+        return strategy;
+    }
+
+    public int level() {
+        return level;
+    }
+
+    public int seed() {
+        return seed;
+    }
+
+    @Override
+    public String toString() {
+        long bits = (long) version << 36 | (long) strategy.ordinal() << 34 | (long) level << 32 | (seed & 0xFFFFFFFFL);
+        char[] text = new char[LENGTH];
+        for (int k = LENGTH - 1; k >= 0; k--, bits >>>= 5)
+            text[k] = ALPHABET.charAt((int) bits & 31);
+        return new String(text);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof PuzzleId))
+            return false;
+        PuzzleId other = (PuzzleId) o;
+        return version == other.version && strategy == other.strategy && level == other.level && seed == other.seed;
+    }
+
+    @Override
+    public int hashCode() {
+        return (strategy.ordinal() * Sudoku.LEVELS + level) * 31 + seed;
+    }
+
+    // Crockford: case-insensitive, and the easily confused I, L and O read as 1, 1 and 0
+    private static int decode(char c) {
+        c = Character.toUpperCase(c);
+        if (c == 'I' || c == 'L')
+            return 1;
+        if (c == 'O')
+            return 0;
+        return ALPHABET.indexOf(c);
+    }
+}
@@ -0,0 +1,61 @@
+package com.robogo.sudokur;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+// SplitMix64, the generator behind java.util.SplittableRandom (which needs API 24)
+public final class Rng {
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+    private static final AtomicLong seeder = new AtomicLong(mix64(System.currentTimeMillis()) ^ mix64(System.nanoTime()));
+
+    private long seed;
+    private final long gamma;
+
+    public Rng(long seed) {
+        this(seed, GOLDEN_GAMMA);
+    }
+
+    private Rng(long seed, long gamma) {
+        this.seed = seed;
+        this.gamma = gamma;
+    }
+
+    public static Rng create() {
+        return new Rng(mix64(seeder.getAndAdd(2 * GOLDEN_GAMMA)));
+    }
+
+    public long nextLong() {
+        return mix64(seed += gamma);
+    }
+
+    public int nextInt(int bound) {
+        return (int) (((nextLong() >>> 33) * bound) >>> 31);
+    }
+
+    // an independent stream; the parent advances, so repeated splits differ
+    public Rng split() {
+        return new Rng(nextLong(), mixGamma(nextLong()));
+    }
+
+    public void shuffle(int[] array, int from, int to) {
+        for (int i = to - 1; i > from; i--) {
+            int j = from + nextInt(i - from + 1);
+            int t = array[i];
+            array[i] = array[j];
+            array[j] = t;
+        }
+    }
+
+    static long mix64(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    private static long mixGamma(long z) {
+        z = (z ^ (z >>> 33)) * 0xFF51AFD7ED558CCDL;
+        z = (z ^ (z >>> 33)) * 0xC4CEB9FE1A85EC53L;
+        z = (z ^ (z >>> 33)) | 1L;
+        int n = Long.bitCount(z ^ (z >>> 1));
+        return (n < 24) ? z ^ 0xAAAAAAAAAAAAAAAAL : z;
+    }
+}
@@ -0,0 +1,83 @@
+package com.robogo.sudokur;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+// solves a copy of a grid on a background thread, giving up at a deadline; cancel() stops the search itself,
+// not just the wait for it
+public final class SolveTask extends FutureTask<SolveTask.Outcome> {
+    public enum Outcome { SOLVED, UNSOLVABLE, MULTIPLE, TIMEOUT }
+
+    public interface Callback {
+        // called on the solver thread when the task finishes, or on the cancelling thread
+        void onDone(SolveTask task);
+    }
+
+    private static final ExecutorService executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, "Solver");
+            t.setDaemon(true);
+            return t;
+        }
+    });
+
+    private final Solver solver;
+    private final Grid solution;
+    private final Callback callback;
+
+    private SolveTask(final Solver solver, final long timeoutNanos, final Grid puzzle, final Grid solution,
+                      Callback callback) {
+        super(new Callable<Outcome>() {
+            @Override
+            public Outcome call() {
+                solver.setDeadline(System.nanoTime() + timeoutNanos);
+                if (!solver.solve(solution))
+                    return solver.aborted() ? Outcome.TIMEOUT : Outcome.UNSOLVABLE;
+                int count = solver.countSolutions(puzzle, 2);
+                if (solver.aborted())
+                    return Outcome.TIMEOUT;
+                return count == 1 ? Outcome.SOLVED : Outcome.MULTIPLE;
+            }
+        });
+        this.solver = solver;
+        this.solution = solution;
+        this.callback = callback;
+    }
+
+    // the timeout counts from when the solve starts, so waiting behind an earlier task doesn't use it up
+    public static SolveTask submit(Grid grid, long timeoutMillis, Sudoku.Engine engine, Callback callback) {
+        Geometry geometry = Geometry.forSize(grid.size());
+        if (geometry == null)
+            throw new IllegalArgumentException("Unsupported size " + grid.size());
+        return submit(grid, geometry, timeoutMillis, engine, callback);
+    }
+
+    static SolveTask submit(Grid grid, Geometry geometry, long timeoutMillis, Sudoku.Engine engine, Callback callback) {
+        Solver solver = Sudoku.newSolver(engine, geometry);
+        SolveTask task = new SolveTask(solver, TimeUnit.MILLISECONDS.toNanos(timeoutMillis), grid.copy(), grid.copy(), callback);
+        executor.execute(task);
+        return task;
+    }
+
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        solver.cancel();
+        return super.cancel(mayInterruptIfRunning);
+    }
+
+    // the solved grid, flags kept, when the outcome is SOLVED or MULTIPLE
+    public Grid solution() {
+        return solution;
+    }
+
+    @Override
+    protected void done() {
+        if (callback != null)
+            callback.onDone(this);
+    }
+}
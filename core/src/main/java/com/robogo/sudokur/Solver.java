@@ -0,0 +1,20 @@
+package com.robogo.sudokur;
+
+public interface Solver {
+    boolean solve(int[][] board);
+
+    boolean solve(Grid grid);
+
+    int countSolutions(int[][] board, int limit);
+
+    int countSolutions(Grid grid, int limit);
+
+    // searches from now on give up once System.nanoTime() passes the deadline
+    void setDeadline(long deadline);
+
+    // safe from any thread; stops the running search and every later one
+    void cancel();
+
+    // whether the last solve or count gave up early, in which case its result means nothing
+    boolean aborted();
+}
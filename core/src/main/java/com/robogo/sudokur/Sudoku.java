@@ -0,0 +1,325 @@
+package com.robogo.sudokur;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+public class Sudoku {
+    public static final int Size = 9;
+    public static final int LEVELS = 4;
+    private static final int MAX_ATTEMPTS = 20;
+    private static final int BATCH_GRAIN = 4;
+    // easiest and hardest technique accepted at each level
+    private static final Logic.Technique[][] GRADES = {
+            { Logic.Technique.NONE, Logic.Technique.NAKED_SINGLE },
+            { Logic.Technique.NAKED_SINGLE, Logic.Technique.HIDDEN_SINGLE },
+            { Logic.Technique.HIDDEN_SINGLE, Logic.Technique.X_WING },
+            { Logic.Technique.POINTING, Logic.Technique.GUESS },
+    };
+
+    public enum Engine { BITMASK, DLX }
+
+    // SEARCH fills and digs out a fresh grid; TRANSFORM reshuffles a bundled, pre-graded seed puzzle;
+    // MINIMAL digs until no clue can go, within a time budget
+    public enum Strategy { SEARCH, TRANSFORM, MINIMAL }
+
+    public static Solver newSolver(Engine engine) {
+        return newSolver(engine, 3);
+    }
+
+    public static Solver newSolver(Engine engine, int box) {
+        return newSolver(engine, Geometry.of(box));
+    }
+
+    static Solver newSolver(Engine engine, Geometry geometry) {
+        switch (engine) {
+            case DLX: return new DlxSolver(geometry);
+            default: return new BitSolver(geometry);
+        }
+    }
+
+    public static Generator newGenerator(Strategy strategy) {
+        switch (strategy) {
+            case TRANSFORM: return TransformGenerator.bundled();
+            case MINIMAL: return new MinimalGenerator();
+            default:
+                return new Generator() {
+                    private final Solver solver = new BitSolver();
+
+                    @Override
+                    public Grid generate(int level, Rng rng) {
+                        return Grid.of(Sudoku.generate(level, 3, solver, rng));
+                    }
+                };
+        }
+    }
+
+    public static int[][] generate(int level) {
+        return generate(level, Engine.BITMASK);
+    }
+
+    public static int[][] generate(int level, Engine engine) {
+        return generate(level, 3, engine);
+    }
+
+    public static int[][] generate(int level, int box, Engine engine) {
+        return generate(level, box, newSolver(engine, box), Rng.create());
+    }
+
+    public static Grid[] generateBatch(int level, int count, long seed) {
+        return generateBatch(level, count, seed, BatchHolder.pool, new HashSet<Long>());
+    }
+
+    // seen holds the canonical hashes of puzzles to avoid, and gains those of the new ones
+    public static Grid[] generateBatch(int level, int count, long seed, Set<Long> seen) {
+        return generateBatch(level, count, seed, BatchHolder.pool, seen);
+    }
+
+    // the output depends only on the seed: the split tree is fixed by count, not by scheduling, and
+    // duplicates are replaced in index order from a stream of their own
+    public static Grid[] generateBatch(int level, int count, long seed, ForkJoinPool pool, Set<Long> seen) {
+        Grid[] boards = new Grid[count];
+        long[] hashes = new long[count];
+        pool.invoke(new BatchTask(boards, hashes, 0, count, level, new Rng(seed)));
+        Solver solver = null;
+        Rng rng = null;
+        for (int i = 0; i < count; i++) {
+            while (!seen.add(hashes[i])) {
+                if (solver == null) {
+                    solver = new BitSolver();
+                    rng = new Rng(~seed);
+                }
+                boards[i] = Grid.of(generate(level, 3, solver, rng));
+                hashes[i] = Canonical.hashOf(boards[i]);
+            }
+        }
+        return boards;
+    }
+
+    static int[][] generate(int level, int box, Solver solver, Rng rng) {
+        level = Math.max(0, Math.min(LEVELS - 1, level));
+        long start = Metrics.enabled ? System.nanoTime() : 0;
+        Metrics.begin("generate");
+        int[][] board = null;
+        try {
+            for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+                board = tryGenerate(level, box, solver, rng);
+                if (graded(level, board))
+                    break;
+            }
+        } finally {
+            Metrics.end();
+        }
+        if (start != 0)
+            Metrics.GENERATE[level].record(System.nanoTime() - start);
+        return board;
+    }
+
+    static boolean graded(int level, int[][] board) {
+        Logic.Technique grade = Logic.grade(board);
+        return grade.compareTo(GRADES[level][0]) >= 0 && grade.compareTo(GRADES[level][1]) <= 0;
+    }
+
+    static int[][] tryGenerate(int level, int box, Solver solver, Rng rng) {
+        // generate a full board
+        Geometry geometry = Geometry.of(box);
+        int n = geometry.size;
+        int[][] board = new int[n][n];
+        fill(board, box, solver, rng);
+
+        // keep removing cells based on difficulty level, as long as the solution stays unique
+        int minToKeep = (18 + (3 - level) * 3) * n * n / (Size * Size);
+        int[] list = new int[n * n];
+        for (int i = 0; i < list.length; i++)
+            list[i] = i;
+        rng.shuffle(list, 0, list.length);
+        int size = list.length;
+        int clues = size;
+        long iterations = 0;
+        long probes = 0;
+        // taking clues out only ever widens the other cells' options, so a cell passed over earlier in a
+        // pass would be passed over again: each pass carries on from where it is instead of restarting
+        for (int possibility = 1; clues > minToKeep && possibility < level + 2; possibility++) {
+            int kept = 0;
+            int i = 0;
+            for (; i < size && clues > minToKeep; i++) {
+                int x = list[i] / n;
+                int y = list[i] % n;
+                probes++;
+                int count = findPossible(geometry, board, x, y, null);
+                if (count > possibility) {
+                    list[kept++] = list[i];
+                    continue;
+                }
+                iterations++;
+                int value = board[x][y];
+                board[x][y] = 0;
+                if (count == 1 || solver.countSolutions(board, 2) == 1)
+                    clues--;
+                else
+                    board[x][y] = value;    // needed for uniqueness, never retry it
+            }
+            while (i < size)
+                list[kept++] = list[i++];
+            size = kept;
+        }
+        if (Metrics.enabled) {
+            Metrics.REMOVAL_ITERATIONS.add(iterations);
+            Metrics.GENERATE_PROBES.add(probes);
+        }
+
+        return board;
+    }
+
+    public static boolean solve(int[][] board) {
+        return solve(board, Engine.BITMASK);
+    }
+
+    public static boolean solve(int[][] board, Engine engine) {
+        Geometry geometry = Geometry.forSize(board.length);
+        if (geometry == null || board.length != board[0].length)
+            return false;
+        return newSolver(engine, geometry.box).solve(board);
+    }
+
+    public static boolean solve(Grid grid, Engine engine) {
+        Geometry geometry = Geometry.forSize(grid.size());
+        if (geometry == null)
+            return false;
+        return newSolver(engine, geometry.box).solve(grid);
+    }
+
+    public static SolveTask solveAsync(Grid grid, long timeoutMillis, SolveTask.Callback callback) {
+        return SolveTask.submit(grid, timeoutMillis, Engine.BITMASK, callback);
+    }
+
+    public static int countSolutions(int[][] board, int limit) {
+        return countSolutions(board, limit, Engine.BITMASK);
+    }
+
+    public static int countSolutions(int[][] board, int limit, Engine engine) {
+        Geometry geometry = Geometry.forSize(board.length);
+        if (geometry == null || board.length != board[0].length)
+            return 0;
+        return newSolver(engine, geometry.box).countSolutions(board, limit);
+    }
+
+    public static int countSolutions(Grid grid, int limit, Engine engine) {
+        Geometry geometry = Geometry.forSize(grid.size());
+        if (geometry == null)
+            return 0;
+        return newSolver(engine, geometry.box).countSolutions(grid, limit);
+    }
+
+    // the last clash in the same column, row and box, at bits 0, 16 and 32, and at bit 48 in a diagonal or
+    // cage of a variant; each 16 bits hold (row << 8 | col) + 1, or 0 for no clash
+    public static long check(int[][] board, int row, int col, int val) {
+        return check(Geometry.forSize(board.length), board, row, col, val);
+    }
+
+    static long check(Geometry geometry, int[][] board, int row, int col, int val) {
+        int idx = row * geometry.size + col;
+        long conflicts = 0;
+        for (int p : geometry.peers[idx]) {
+            int r = geometry.rowOf[p];
+            int c = geometry.colOf[p];
+            if ((board[r][c] & 0xFF) != val)
+                continue;
+            int shift = c == col ? 0 : r == row ? 16 : geometry.boxOf[p] == geometry.boxOf[idx] ? 32 : 48;
+            conflicts = (conflicts & ~(0xFFFFL << shift)) | (long) ((r << 8) + c + 1) << shift;
+        }
+        return conflicts;
+    }
+
+    static void fill(int[][] board, int box, Solver solver, Rng rng) {
+        // the diagonal boxes don't constrain each other, so seed them randomly and solve the rest
+        int n = board.length;
+        int[] digits = new int[n];
+        for (int i = 0; i < n; i++)
+            digits[i] = i + 1;
+        for (int b = 0; b < n; b += box) {
+            rng.shuffle(digits, 0, n);
+            for (int k = 0; k < n; k++)
+                board[b + k / box][b + k % box] = digits[k];
+        }
+        solver.solve(board);
+    }
+
+    static void print(int[][] board) {
+        for (int i = 0; i < board.length; i++)
+            System.out.println(Arrays.toString(board[i]));
+        System.out.println();
+    }
+
+    static int findPossible(int[][] board, int row, int col, ArrayList<Integer> list) {
+        return findPossible(Geometry.forSize(board.length), board, row, col, list);
+    }
+
+    static int findPossible(Geometry geometry, int[][] board, int row, int col, ArrayList<Integer> list) {
+        int idx = row * geometry.size + col;
+        int bits = geometry.all;
+        for (int p : geometry.peers[idx])
+            bits &= ~(1 << (board[geometry.rowOf[p]][geometry.colOf[p]] & 0xFF));
+        int cage = geometry.cageOf[idx];
+        if (cage >= 0) {
+            int left = geometry.cageSum[cage];
+            int open = 0;
+            for (int i : geometry.cages[cage]) {
+                int value = board[geometry.rowOf[i]][geometry.colOf[i]] & 0xFF;
+                if (i == idx || value == 0)
+                    open++;
+                else
+                    left -= value;
+            }
+            bits &= geometry.sumMask(left, open);
+        }
+        if (list != null) {
+            for (int i = 1; i <= geometry.size; i++) {
+                if ((bits & (1 << i)) != 0)
+                    list.add(i);
+            }
+        }
+        return Integer.bitCount(bits);
+    }
+
+    private static class BatchHolder {
+        static final ForkJoinPool pool = new ForkJoinPool();
+    }
+
+    private static class BatchTask extends RecursiveAction {
+        private final Grid[] boards;
+        private final long[] hashes;
+        private final int from;
+        private final int to;
+        private final int level;
+        private final Rng rng;
+
+        BatchTask(Grid[] boards, long[] hashes, int from, int to, int level, Rng rng) {
+            this.boards = boards;
+            this.hashes = hashes;
+            this.from = from;
+            this.to = to;
+            this.level = level;
+            this.rng = rng;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= BATCH_GRAIN) {
+                Solver solver = new BitSolver();
+                for (int i = from; i < to; i++) {
+                    boards[i] = Grid.of(generate(level, 3, solver, rng));
+                    hashes[i] = Canonical.hashOf(boards[i]);
+                }
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            BatchTask left = new BatchTask(boards, hashes, from, mid, level, rng.split());
+            BatchTask right = new BatchTask(boards, hashes, mid, to, level, rng);
+            invokeAll(left, right);
+        }
+    }
+}
@@ -0,0 +1,455 @@
+package com.robogo.sudokur;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.concurrent.ExecutionException;
+
+public class SudokuBoard extends Board implements Serializable {
+    public interface Listener {
+        // called on the solver thread once the solution for the current game is known
+        void onSolutionReady(SudokuBoard board);
+    }
+
+    public static final String NAME = "com.robogo.sudokur.Board";
+    private static final long SOLUTION_TIMEOUT_MS = 10000;
+
+    private Grid grid;
+    private transient History history;
+    private transient Journal journal;
+    private transient HintEngine hints;
+    private transient Geometry geometry;
+    private transient int[] counts;     // digit counts per unit or cage, counts[group * (n + 1) + value]
+    private transient int[] used;       // digits present per unit or cage, bit v for digit v
+    private transient int[] candidates; // digits still open per empty cell, bit v for digit v
+    private transient int filled;
+    private transient int conflicts;
+    private transient volatile byte[] solution;     // the givens' unique solution, once the background solve is done
+    private transient volatile int game;            // bumped by each init, so a late solve for an old game is dropped
+    private transient SolveTask solving;
+    private transient volatile Listener listener;
+
+    public void init(int[][] board) {
+        init(Grid.of(board));
+    }
+
+    public void init(Grid grid) {
+        init(grid, Geometry.forSize(grid.size()));
+    }
+
+    // a variant board: diagonals, jigsaw regions or killer cages. Only the grid goes into Journal snapshots,
+    // so a restored variant comes back as a plain board
+    void init(Grid grid, Geometry geometry) {
+        if (geometry == null || geometry.size != grid.size())
+            throw new IllegalArgumentException("Unsupported size " + grid.size());
+        if (geometry != this.geometry)
+            hints = null;
+        this.geometry = geometry;
+        for (int idx = 0; idx < grid.length(); idx++) {
+            if (grid.get(idx) > 0) {
+                grid.set(idx, grid.get(idx) | READONLY_MASK);
+            }
+        }
+        this.grid = grid;
+        this.history = new History();
+        rebuild();
+        startSolution();
+        if (journal != null)
+            journal.snapshot(this);
+    }
+
+    public void init(SudokuBoard board) {
+        init(board.grid);
+    }
+
+    public boolean initialized() {
+        return grid != null;
+    }
+
+    public Grid grid() {
+        return grid;
+    }
+
+    @Override
+    public int row() {
+        return grid.size();
+    }
+
+    @Override
+    public int col() { return grid.size(); }
+
+    public int box() {
+        return geometry.box;
+    }
+
+    @Override
+    public int value(int i, int j) {
+        return get(i, j, VALUE_MASK);
+    }
+
+    @Override
+    public int flags(int i, int j) {
+        return get(i, j, FLAGS_MASK);
+    }
+
+    @Override
+    public int candidates(int i, int j) {
+        return candidates[i * grid.size() + j];
+    }
+
+    public boolean set(int i, int j, int value) {
+        int old = grid.get(i, j);
+        place(i, j, (old & ~VALUE_MASK) | value);
+        history.push(History.PUT, i, j, old);
+        record(Journal.PUT, i, j, value);
+        return complete();
+    }
+
+    public void clear(int i, int j) {
+        int old = grid.get(i, j);
+        place(i, j, 0);
+        history.push(History.CLEAR, i, j, old);
+        record(Journal.CLEAR, i, j, 0);
+    }
+
+    public boolean lock(int i, int j, boolean v) {
+        history.push(History.LOCK, i, j, grid.get(i, j));
+        set(i, j, LOCK_MASK, v ? LOCK_MASK : 0);
+        record(Journal.LOCK, i, j, v ? 1 : 0);
+        return v;
+    }
+
+    public boolean flag(int i, int j, boolean v) {
+        history.push(History.FLAG, i, j, grid.get(i, j));
+        set(i, j, FLAG_MASK, v ? FLAG_MASK : 0);
+        record(Journal.FLAG, i, j, v ? 1 : 0);
+        return v;
+    }
+
+    public boolean conflict(int i, int j, boolean v) {
+        if (conflicting(i, j) != v)
+            conflicts += v ? 1 : -1;
+        set(i, j, CONFLICT_MASK, v ? CONFLICT_MASK : 0);
+        return v;
+    }
+
+    public boolean complete() {
+        return filled == geometry.cells && conflicts == 0 && (!geometry.variant || geometry.cagesAddUp(grid));
+    }
+
+    public void undo() {
+        if (history.canUndo()) {
+            swap(history.undo());
+            record(Journal.UNDO, 0, 0, 0);
+        }
+    }
+
+    public void redo() {
+        if (history.canRedo()) {
+            swap(history.redo());
+            record(Journal.REDO, 0, 0, 0);
+        }
+    }
+
+    // back to just after the latest flag
+    public void undoN() {
+        int target = history.checkpoint();
+        if (target < 0 || history.position() == target)
+            return;
+        while (history.position() > target)
+            swap(history.undo());
+        record(Journal.UNDO_N, 0, 0, 0);
+    }
+
+    // fills in the known solution, and only searches if it isn't known yet
+    public void solve() {
+        if (!revealAll())
+            solve(geometry.variant ? Sudoku.Engine.BITMASK : Sudoku.Engine.DLX);
+    }
+
+    public void solve(Sudoku.Engine engine) {
+        if (Sudoku.newSolver(engine, geometry).solve(grid)) {
+            rebuild();
+            if (journal != null)
+                journal.snapshot(this);
+        }
+    }
+
+    public boolean solutionReady() {
+        return solution != null;
+    }
+
+    // a digit that differs from the solution; always false while the solution is unknown
+    public boolean wrong(int i, int j) {
+        byte[] solution = this.solution;
+        int value = grid.value(i * grid.size() + j);
+        return solution != null && value != 0 && value != solution[i * grid.size() + j];
+    }
+
+    // puts the solution's digit in one cell as a normal, undoable move; false if unknown, a given or locked
+    public boolean reveal(int i, int j) {
+        byte[] solution = this.solution;
+        if (solution == null || readonly(i, j) || locked(i, j))
+            return false;
+        set(i, j, solution[i * grid.size() + j]);
+        return true;
+    }
+
+    // overwrites every cell with the solution; false if it isn't known yet
+    public boolean revealAll() {
+        byte[] solution = this.solution;
+        if (solution == null)
+            return false;
+        for (int idx = 0; idx < grid.length(); idx++)
+            grid.setValue(idx, solution[idx]);
+        rebuild();
+        if (journal != null)
+            journal.snapshot(this);
+        return true;
+    }
+
+    public SolveTask solveAsync(long timeoutMillis, SolveTask.Callback callback) {
+        return SolveTask.submit(grid, geometry, timeoutMillis, Sudoku.Engine.BITMASK, callback);
+    }
+
+    // fills in a solution found in the background; false if the board has since moved away from it
+    public boolean apply(Grid solution) {
+        if (solution.size() != grid.size())
+            return false;
+        for (int idx = 0; idx < grid.length(); idx++) {
+            int value = grid.value(idx);
+            if (value > 0 && value != solution.value(idx))
+                return false;
+        }
+        for (int idx = 0; idx < grid.length(); idx++)
+            grid.setValue(idx, solution.value(idx));
+        rebuild();
+        if (journal != null)
+            journal.snapshot(this);
+        return true;
+    }
+
+    public Hint hint() {
+        return hints.hint();
+    }
+
+    // moves are appended to the journal from now on; null detaches it
+    public void setJournal(Journal journal) {
+        this.journal = journal;
+    }
+
+    // null detaches it
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    // the full state including undo history, for Journal snapshots
+    void write(DataOutput out) throws IOException {
+        out.writeByte(grid.size());
+        for (int idx = 0; idx < grid.length(); idx++)
+            out.writeShort(grid.get(idx));
+        history.write(out);
+    }
+
+    void read(DataInput in) throws IOException {
+        int n = in.readByte();
+        if (Geometry.forSize(n) == null)
+            throw new IOException("unsupported board size " + n);
+        Grid grid = new Grid(n);
+        for (int idx = 0; idx < grid.length(); idx++)
+            grid.set(idx, in.readUnsignedShort());
+        History history = new History();
+        history.read(in);
+        this.grid = grid;
+        this.history = history;
+        if (geometry != Geometry.forSize(n)) {
+            geometry = null;
+            hints = null;
+        }
+        rebuild();
+        startSolution();
+    }
+
+    // solves the givens alone in the background, so mistakes and reveals are lookups from then on
+    private void startSolution() {
+        final int current;
+        synchronized (this) {
+            current = ++game;
+            solution = null;
+        }
+        if (solving != null)
+            solving.cancel(true);
+        Grid givens = new Grid(grid.size());
+        for (int idx = 0; idx < grid.length(); idx++) {
+            if ((grid.get(idx) & READONLY_MASK) != 0)
+                givens.setValue(idx, grid.value(idx));
+        }
+        solving = SolveTask.submit(givens, geometry, SOLUTION_TIMEOUT_MS, Sudoku.Engine.BITMASK, new SolveTask.Callback() {
+            @Override
+            public void onDone(SolveTask task) {
+                if (task.isCancelled() || current != game)
+                    return;
+                try {
+                    if (task.get() != SolveTask.Outcome.SOLVED)
+                        return;
+                } catch (InterruptedException | ExecutionException e) {
+                    return;
+                }
+                Grid solved = task.solution();
+                byte[] values = new byte[solved.length()];
+                for (int idx = 0; idx < values.length; idx++)
+                    values[idx] = (byte) solved.value(idx);
+                synchronized (SudokuBoard.this) {
+                    if (current != game)
+                        return;
+                    solution = values;
+                }
+                Listener l = listener;
+                if (l != null)
+                    l.onSolutionReady(SudokuBoard.this);
+            }
+        });
+    }
+
+    private void record(int op, int i, int j, int arg) {
+        if (journal != null && journal.append(Journal.record(op, i, j, arg)))
+            journal.snapshot(this);
+    }
+
+    private void set(int i, int j, int bitMask, int value) {
+        grid.set(i, j, (grid.get(i, j) & ~bitMask) | value);
+    }
+
+    private int get(int i, int j, int bitMask) {
+        return grid.get(i, j) & bitMask;
+    }
+
+    // moves are stored with the cell they replaced; swapping it back in undoes or redoes them alike
+    private void swap(int entry) {
+        int i = History.row(entry);
+        int j = History.col(entry);
+        history.replace(grid.get(i, j) & ~CONFLICT_MASK);
+        place(i, j, History.cell(entry));
+    }
+
+    // writes a whole cell and refreshes the conflict state of the peers it can affect
+    private void place(int i, int j, int cell) {
+        int n = grid.size();
+        int idx = i * n + j;
+        int oldValue = value(i, j);
+        int value = cell & VALUE_MASK;
+        if (conflicting(i, j))
+            conflicts--;
+        grid.set(idx, cell & ~CONFLICT_MASK);
+        if (oldValue != value) {
+            if (oldValue > 0) {
+                count(idx, oldValue, -1);
+                filled--;
+            }
+            if (value > 0) {
+                count(idx, value, 1);
+                filled++;
+            }
+            candidates[idx] = value > 0 ? 0 : open(idx);
+            for (int p : geometry.peers[idx]) {
+                int v = grid.value(p);
+                if (v == 0)
+                    candidates[p] = open(p);
+                else if (v == oldValue || v == value)
+                    refresh(p);
+            }
+            hints.update(idx, value, candidates);
+        }
+        refresh(idx);
+    }
+
+    private void count(int idx, int value, int delta) {
+        int stride = grid.size() + 1;
+        for (int g : geometry.groupsOf[idx]) {
+            int c = counts[g * stride + value] += delta;
+            if (c == 0)
+                used[g] &= ~(1 << value);
+            else
+                used[g] |= 1 << value;
+        }
+    }
+
+    private int open(int idx) {
+        int free = geometry.all;
+        for (int g : geometry.groupsOf[idx])
+            free &= ~used[g];
+        int cage = geometry.cageOf[idx];
+        if (cage < 0)
+            return free;
+        int left = geometry.cageSum[cage];
+        int empty = 0;
+        for (int i : geometry.cages[cage]) {
+            left -= grid.value(i);
+            if (grid.value(i) == 0)
+                empty++;
+        }
+        return free & geometry.sumMask(left, empty);
+    }
+
+    private void refresh(int idx) {
+        int n = grid.size();
+        int value = grid.value(idx);
+        boolean clash = false;
+        if (value > 0) {
+            for (int g : geometry.groupsOf[idx])
+                clash |= counts[g * (n + 1) + value] > 1;
+        }
+        conflict(idx / n, idx % n, clash);
+    }
+
+    private void rebuild() {
+        int n = grid.size();
+        if (geometry == null || geometry.size != n)
+            geometry = Geometry.forSize(n);
+        counts = new int[geometry.groups * (n + 1)];
+        used = new int[geometry.groups];
+        candidates = new int[geometry.cells];
+        filled = 0;
+        conflicts = 0;
+        for (int idx = 0; idx < geometry.cells; idx++) {
+            grid.set(idx, grid.get(idx) & ~CONFLICT_MASK);
+            int value = grid.value(idx);
+            if (value > 0) {
+                count(idx, value, 1);
+                filled++;
+            }
+        }
+        for (int idx = 0; idx < geometry.cells; idx++) {
+            refresh(idx);
+            candidates[idx] = grid.value(idx) > 0 ? 0 : open(idx);
+        }
+        if (hints == null || hints.size() != n)
+            hints = new HintEngine(geometry);
+        hints.reset(grid);
+    }
+
+    private void writeObject(java.io.ObjectOutputStream out) throws IOException {
+        if (grid == null) {
+            out.writeInt(-1);
+        } else {
+            out.writeInt(grid.size());
+            out.writeInt(grid.size());
+            for (int idx = 0; idx < grid.length(); idx++) {
+                out.writeInt(grid.get(idx));
+            }
+        }
+    }
+
+    private void readObject(java.io.ObjectInputStream in) throws IOException {
+        int row = in.readInt();
+        if (row == -1) return;
+        int col = in.readInt();
+        grid = new Grid(row);
+        for (int idx = 0; idx < row * col; idx++)
+            grid.set(idx, in.readInt());
+        history = new History();
+        rebuild();
+        startSolution();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,128 @@
+package com.robogo.sudokur;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+// new puzzles from a small bank of seeds already checked for a unique solution and their level's grade.
+// Relabeling digits, shuffling bands, stacks, rows within a band and columns within a stack, and transposing
+// keep both, so a seed comes out as an unrecognisable puzzle of the same difficulty; rotations and mirror
+// images are among these. Stateless, so one instance can be shared between threads
+public final class TransformGenerator implements Generator {
+    static final String RESOURCE = "seeds.bank";
+
+    private final PuzzleBank seeds;
+
+    public TransformGenerator(PuzzleBank seeds) {
+        this.seeds = seeds;
+    }
+
+    public static TransformGenerator bundled() {
+        return Holder.bundled;
+    }
+
+    @Override
+    public Grid generate(int level, Rng rng) {
+        level = Math.max(0, Math.min(seeds.levels() - 1, level));
+        return transform(seeds.get(level, rng), rng);
+    }
+
+    static Grid transform(Grid seed, Rng rng) {
+        int n = seed.size();
+        int box = Geometry.forSize(n).box;
+        int[] digits = new int[n + 1];
+        for (int v = 0; v <= n; v++)
+            digits[v] = v;
+        rng.shuffle(digits, 1, n + 1);
+        int[] rows = lines(box, rng);
+        int[] cols = lines(box, rng);
+        boolean transpose = rng.nextInt(2) != 0;
+
+        Grid grid = new Grid(n);
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                int from = transpose ? cols[j] * n + rows[i] : rows[i] * n + cols[j];
+                grid.setValue(i * n + j, digits[seed.value(from)]);
+            }
+        }
+        return grid;
+    }
+
+    // a random order of the lines that keeps each band together
+    private static int[] lines(int box, Rng rng) {
+        int[] bands = new int[box];
+        int[] within = new int[box];
+        int[] lines = new int[box * box];
+        for (int b = 0; b < box; b++)
+            bands[b] = b;
+        rng.shuffle(bands, 0, box);
+        for (int b = 0; b < box; b++) {
+            for (int k = 0; k < box; k++)
+                within[k] = k;
+            rng.shuffle(within, 0, box);
+            for (int k = 0; k < box; k++)
+                lines[b * box + k] = bands[b] * box + within[k];
+        }
+        return lines;
+    }
+
+    // checked seeds for every level, no two alike up to symmetry; writes the bank bundled as RESOURCE
+    public static void build(File file, int perLevel, long seed) throws IOException {
+        Grid[][] puzzles = new Grid[Sudoku.LEVELS][];
+        Set<Long> seen = new HashSet<>();
+        Solver solver = new BitSolver();
+        for (int level = 0; level < puzzles.length; level++) {
+            List<Grid> kept = new ArrayList<>();
+            for (long batch = 0; kept.size() < perLevel; batch++) {
+                for (Grid grid : Sudoku.generateBatch(level, perLevel, seed + level + batch * Sudoku.LEVELS, seen)) {
+                    if (kept.size() < perLevel && solver.countSolutions(grid, 2) == 1
+                            && Sudoku.graded(level, grid.toArray()))
+                        kept.add(grid);
+                }
+            }
+            puzzles[level] = kept.toArray(new Grid[0]);
+        }
+        PuzzleBank.write(file, puzzles);
+    }
+
+    // TransformGenerator <file> <seeds per level> [seed]
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("usage: TransformGenerator <file> <seeds per level> [seed]");
+            System.exit(1);
+        }
+        File file = new File(args[0]);
+        build(file, Integer.parseInt(args[1]), args.length > 2 ? Long.parseLong(args[2]) : 1);
+        System.out.printf("%s: %d bytes%n", file, file.length());
+    }
+
+    private static class Holder {
+        static final TransformGenerator bundled = load();
+
+        private static TransformGenerator load() {
+            InputStream in = TransformGenerator.class.getResourceAsStream(RESOURCE);
+            if (in == null)
+                throw new IllegalStateException(RESOURCE + " is missing");
+            try {
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream(16 << 10);
+                byte[] chunk = new byte[4096];
+                for (int read; (read = in.read(chunk)) > 0; )
+                    bytes.write(chunk, 0, read);
+                return new TransformGenerator(PuzzleBank.wrap(ByteBuffer.wrap(bytes.toByteArray())));
+            } catch (IOException e) {
+                throw new IllegalStateException("cannot load " + RESOURCE, e);
+            } finally {
+                try {
+                    in.close();
+                } catch (IOException ignored) {
+                }
+            }
+        }
+    }
+}
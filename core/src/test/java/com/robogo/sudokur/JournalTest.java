@@ -0,0 +1,56 @@
+package com.robogo.sudokur;
+
+import org.junit.Test;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class JournalTest {
+    @Test
+    public void replayStopsAtCorruptTail() throws IOException {
+        File dir = tempDir();
+        int[][] full = new int[9][9];
+        Sudoku.solve(full);
+        Grid puzzle = Grid.of(full);
+        for (int idx = 0; idx < puzzle.length(); idx++) {
+            if (idx % 3 == 1)
+                puzzle.setValue(idx, 0);
+        }
+
+        Journal journal = new Journal(dir);
+        SudokuBoard board = new SudokuBoard();
+        board.setJournal(journal);
+        board.init(puzzle);
+        board.set(0, 1, full[0][1]);
+        board.set(0, 4, full[0][4]);
+        journal.close();
+
+        DataOutputStream out = new DataOutputStream(new FileOutputStream(new File(dir, "game.journal"), true));
+        out.writeInt(0);                                    // zeroed tail: would be set(0, 0, 0) on a given
+        out.writeInt(0xDEADBEEF);                           // junk
+        out.writeInt(Journal.record(Journal.PUT, 0, 7, full[0][7]));  // after the damage, so never replayed
+        out.close();
+
+        Journal restored = new Journal(dir);
+        SudokuBoard copy = new SudokuBoard();
+        assertTrue(restored.restore(copy));
+        restored.close();
+        assertEquals(full[0][0], copy.value(0, 0));
+        assertTrue(copy.readonly(0, 0));
+        assertEquals(full[0][1], copy.value(0, 1));
+        assertEquals(full[0][4], copy.value(0, 4));
+        assertEquals(0, copy.value(0, 7));
+    }
+
+    private static File tempDir() throws IOException {
+        File dir = File.createTempFile("journal", "");
+        assertTrue(dir.delete() && dir.mkdir());
+        dir.deleteOnExit();
+        return dir;
+    }
+}
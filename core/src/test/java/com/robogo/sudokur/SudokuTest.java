@@ -0,0 +1,28 @@
+package com.robogo.sudokur;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class SudokuTest {
+    @Test
+    public void checkReportsClashAtOrigin() {
+        int[][] board = new int[9][9];
+        board[0][0] = 5;
+        assertEquals(0, Sudoku.check(board, 4, 4, 5));
+        assertEquals(1, Sudoku.check(board, 4, 0, 5));
+        assertEquals(1L << 16, Sudoku.check(board, 0, 4, 5));
+        assertEquals(1L << 32, Sudoku.check(board, 1, 1, 5));
+    }
+
+    @Test
+    public void checkReportsDiagonalClash() {
+        Geometry geometry = new Geometry.Builder(3).diagonals().build();
+        int[][] board = new int[9][9];
+        board[0][0] = 5;
+        board[2][6] = 7;
+        assertEquals(1L << 48, Sudoku.check(geometry, board, 8, 8, 5));
+        assertEquals((long) ((2 << 8) + 6 + 1) << 48, Sudoku.check(geometry, board, 6, 2, 7));
+        assertEquals(0, Sudoku.check(Geometry.of(3), board, 8, 8, 5));
+    }
+}